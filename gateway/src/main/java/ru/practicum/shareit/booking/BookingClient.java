@@ -3,14 +3,20 @@ package ru.practicum.shareit.booking;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.util.DefaultUriBuilderFactory;
+import ru.practicum.shareit.booking.dto.BookingApproveRequestDto;
 import ru.practicum.shareit.booking.dto.BookingRequestDto;
 import ru.practicum.shareit.booking.dto.BookingState;
 import ru.practicum.shareit.client.BaseClient;
 
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -18,12 +24,14 @@ public class BookingClient extends BaseClient {
     private static final String API_PREFIX = "/bookings";
 
     @Autowired
-    public BookingClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public BookingClient(@Value("${shareit-server.url}") String serverUrl,
+                         @Value("${spring.task.execution.pool.max-size}") int maxExports, RestTemplateBuilder builder) {
         super(
                 builder
                         .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
                         .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                        .build()
+                        .build(),
+                maxExports
         );
     }
 
@@ -31,22 +39,66 @@ public class BookingClient extends BaseClient {
         return post("", userId, bookingRequestDto);
     }
 
+    public ResponseEntity<Object> createBookings(List<BookingRequestDto> bookingRequestDtos, Long userId) {
+        return post("/batch", userId, bookingRequestDtos);
+    }
+
     public ResponseEntity<Object> updateBooking(Long userId, Long bookingId, Boolean approved) {
         Map<String, Object> parameters = Map.of("approved", approved);
         return patch("/" + bookingId + "?approved={approved}", userId, parameters, null);
     }
 
+    public ResponseEntity<Object> approveBookings(Long userId, BookingApproveRequestDto bookingApproveRequestDto) {
+        return patch("/approve", userId, bookingApproveRequestDto);
+    }
+
     public ResponseEntity<Object> getBookingById(Long userId, Long bookingId) {
         return get("/" + bookingId, userId);
     }
 
-    public ResponseEntity<Object> getAllBookingsByUserId(Long userId, BookingState state, Integer from, Integer size) {
-        Map<String, Object> parameters = Map.of("state", state.name(), "from", from, "size", size);
-        return get("?state={state}&from={from}&size={size}", userId, parameters);
+    public ResponseEntity<Object> getAllBookingsByUserId(Long userId, BookingState state, Integer from, Integer size,
+                                                         String after) {
+        return get(listPath("", after), userId, listParameters(state, from, size, after));
+    }
+
+    public ResponseEntity<StreamingResponseBody> exportBookingsByUserId(Long userId) {
+        return stream("/export", userId, MediaType.APPLICATION_NDJSON, null);
+    }
+
+    public ResponseEntity<StreamingResponseBody> exportBookingsByOwnerId(Long ownerId) {
+        return stream("/owner/export", ownerId, MediaType.APPLICATION_NDJSON, null);
+    }
+
+    public ResponseEntity<ResponseBodyEmitter> streamOwnerEvents(Long ownerId, String lastEventId) {
+        return events("/owner/events", ownerId, lastEventId);
+    }
+
+    public ResponseEntity<Object> getAllBookingsByOwnerId(Long ownerId, BookingState state, Integer from, Integer size,
+                                                          String after) {
+        return get(listPath("/owner", after), ownerId, listParameters(state, from, size, after));
+    }
+
+    public ResponseEntity<Object> getBookingSummaryByUserId(Long userId) {
+        return get("/summary", userId);
+    }
+
+    public ResponseEntity<Object> getBookingSummaryByOwnerId(Long ownerId) {
+        return get("/owner/summary", ownerId);
+    }
+
+    private String listPath(String prefix, String after) {
+        String path = prefix + "?state={state}&from={from}&size={size}";
+        return after == null ? path : path + "&after={after}";
     }
 
-    public ResponseEntity<Object> getAllBookingsByOwnerId(Long ownerId, BookingState state, Integer from, Integer size) {
-        Map<String, Object> parameters = Map.of("state", state.name(), "from", from, "size", size);
-        return get("/owner?state={state}&from={from}&size={size}", ownerId, parameters);
+    private Map<String, Object> listParameters(BookingState state, Integer from, Integer size, String after) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("state", state.name());
+        parameters.put("from", from);
+        parameters.put("size", size);
+        if (after != null) {
+            parameters.put("after", after);
+        }
+        return parameters;
     }
 }
@@ -2,19 +2,28 @@ package ru.practicum.shareit.booking;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.booking.dto.BookingApproveRequestDto;
 import ru.practicum.shareit.booking.dto.BookingRequestDto;
 import ru.practicum.shareit.booking.dto.BookingState;
 import ru.practicum.shareit.exception.BadRequestException;
 
 import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
+import javax.validation.constraints.Size;
+import java.util.List;
 
 import static ru.practicum.shareit.util.Constant.HEADER;
+import static ru.practicum.shareit.util.Constant.LAST_EVENT_ID_HEADER;
 
 @Controller
 @RequestMapping(path = "/bookings")
@@ -32,6 +41,15 @@ public class BookingController {
         return bookingClient.createBooking(bookingRequestDto, userId);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<Object> createBookings(@RequestHeader(HEADER) long userId,
+                                                 @RequestBody @NotEmpty @Size(max = 50)
+                                                 List<@NotNull @Valid BookingRequestDto> bookingRequestDtos) {
+        log.info("Получен POST запрос по эндпоинту '/bookings/batch' от user с id {} на добавление {} bookings",
+                userId, bookingRequestDtos.size());
+        return bookingClient.createBookings(bookingRequestDtos, userId);
+    }
+
     @PatchMapping("/{bookingId}")
     public ResponseEntity<Object> updateBooking(@RequestHeader(HEADER) Long userId,
                                                 @PathVariable Long bookingId,
@@ -42,6 +60,14 @@ public class BookingController {
         return bookingClient.updateBooking(userId, bookingId, approved);
     }
 
+    @PatchMapping("/approve")
+    public ResponseEntity<Object> approveBookings(@RequestHeader(HEADER) Long userId,
+                                                  @RequestBody @Valid BookingApproveRequestDto bookingApproveRequestDto) {
+        log.info("Получен PATCH запрос по эндпоинту '/bookings/approve' от user c id {} на изменение статуса "
+                + "booking {}", userId, bookingApproveRequestDto);
+        return bookingClient.approveBookings(userId, bookingApproveRequestDto);
+    }
+
     @GetMapping("/{bookingId}")
     public ResponseEntity<Object> getBookingById(@RequestHeader(HEADER) Long userId, @PathVariable Long bookingId) {
         log.info("Получен GET запрос по эндпоинту '/bookings/{}' от user c id {} на получение booking с id {}",
@@ -54,12 +80,50 @@ public class BookingController {
             @RequestHeader(HEADER) Long userId,
             @RequestParam(name = "state", defaultValue = "ALL") String stateParam,
             @RequestParam(defaultValue = "0") @PositiveOrZero Integer from,
-            @RequestParam(defaultValue = "10") @Positive Integer size) {
+            @RequestParam(defaultValue = "10") @Positive Integer size,
+            @RequestParam(required = false) String after) {
         BookingState state = BookingState.from(stateParam)
                 .orElseThrow(() -> new BadRequestException("Unknown state: " + stateParam));
         log.info("Получен GET запрос по эндпоинту '/bookings' от user c id {} " +
                 "на получение списка всех booking этого user", userId);
-        return bookingClient.getAllBookingsByUserId(userId, state, from, size);
+        return bookingClient.getAllBookingsByUserId(userId, state, from, size, after);
+    }
+
+    @GetMapping("/summary")
+    public ResponseEntity<Object> getBookingSummaryByUserId(@RequestHeader(HEADER) Long userId) {
+        log.info("Получен GET запрос по эндпоинту '/bookings/summary' от user c id {} на получение количества "
+                + "booking по статусам", userId);
+        return bookingClient.getBookingSummaryByUserId(userId);
+    }
+
+    @GetMapping("/owner/summary")
+    public ResponseEntity<Object> getBookingSummaryByOwnerId(@RequestHeader(HEADER) Long ownerId) {
+        log.info("Получен GET запрос по эндпоинту '/bookings/owner/summary' от user c id {} на получение количества "
+                + "booking по статусам для его items", ownerId);
+        return bookingClient.getBookingSummaryByOwnerId(ownerId);
+    }
+
+    @GetMapping(path = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportBookingsByUserId(@RequestHeader(HEADER) Long userId) {
+        log.info("Получен GET запрос по эндпоинту '/bookings/export' от user c id {} на выгрузку всех booking "
+                + "этого user", userId);
+        return bookingClient.exportBookingsByUserId(userId);
+    }
+
+    @GetMapping(path = "/owner/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportBookingsByOwnerId(@RequestHeader(HEADER) Long ownerId) {
+        log.info("Получен GET запрос по эндпоинту '/bookings/owner/export' от user c id {} на выгрузку всех "
+                + "booking его items", ownerId);
+        return bookingClient.exportBookingsByOwnerId(ownerId);
+    }
+
+    @GetMapping(path = "/owner/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> subscribeToOwnerEvents(
+            @RequestHeader(HEADER) Long ownerId,
+            @RequestHeader(name = LAST_EVENT_ID_HEADER, required = false) String lastEventId) {
+        log.info("Получен GET запрос по эндпоинту '/bookings/owner/events' от user c id {} на подписку на события "
+                + "booking его items", ownerId);
+        return bookingClient.streamOwnerEvents(ownerId, lastEventId);
     }
 
     @GetMapping("/owner")
@@ -67,11 +131,12 @@ public class BookingController {
             @RequestHeader(HEADER) Long ownerId,
             @RequestParam(name = "state", defaultValue = "ALL") String stateParam,
             @RequestParam(defaultValue = "0") @PositiveOrZero Integer from,
-            @RequestParam(defaultValue = "10") @Positive Integer size) {
+            @RequestParam(defaultValue = "10") @Positive Integer size,
+            @RequestParam(required = false) String after) {
         BookingState state = BookingState.from(stateParam)
                 .orElseThrow(() -> new BadRequestException("Unknown state: " + stateParam));
         log.info("Получен GET запрос по эндпоинту '/bookings/owner' от user c id {} на получение списка booking всех "
                 + "items для которых он owner", ownerId);
-        return bookingClient.getAllBookingsByOwnerId(ownerId, state, from, size);
+        return bookingClient.getAllBookingsByOwnerId(ownerId, state, from, size, after);
     }
 }
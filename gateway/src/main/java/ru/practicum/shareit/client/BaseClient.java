@@ -1,18 +1,63 @@
 package ru.practicum.shareit.client;
 
 import org.springframework.http.*;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.lang.Nullable;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.exception.ServiceUnavailableException;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Semaphore;
+
+import static ru.practicum.shareit.util.Constant.LAST_EVENT_ID_HEADER;
 
 public class BaseClient {
+    private static final int STREAM_BUFFER_SIZE = 8192;
+    private static final Duration EVENTS_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration EVENTS_RESPONSE_TIMEOUT = Duration.ofSeconds(30);
+
     protected final RestTemplate rest;
+    /*
+     * Долгие потоки (SSE, выгрузки) идут мимо пула HttpComponents, чтобы не занимать его соединения
+     */
+    private final SimpleClientHttpRequestFactory streamRequestFactory = new SimpleClientHttpRequestFactory();
+    /*
+     * События SSE пересылаются неблокирующим клиентом: между событиями подписка не занимает ни одного потока
+     */
+    private final HttpClient eventClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(EVENTS_CONNECT_TIMEOUT)
+            .build();
+    /*
+     * Каждая выгрузка занимает поток пула async-запросов до конца соединения. Сверх лимита запрос сразу получает 503,
+     * а не ждёт в очереди пула. Подписки на события этот лимит не расходуют
+     */
+    private final Semaphore streamPermits;
 
     public BaseClient(RestTemplate rest) {
+        this(rest, Integer.MAX_VALUE);
+    }
+
+    public BaseClient(RestTemplate rest, int maxStreams) {
         this.rest = rest;
+        this.streamPermits = new Semaphore(maxStreams);
     }
 
     protected ResponseEntity<Object> get(String path) {
@@ -75,6 +120,110 @@ public class BaseClient {
         return makeAndSendRequest(HttpMethod.DELETE, path, userId, parameters, null);
     }
 
+    protected ResponseEntity<StreamingResponseBody> stream(String path, Long userId, MediaType mediaType,
+                                                           @Nullable Map<String, Object> parameters) {
+        if (!streamPermits.tryAcquire()) {
+            throw new ServiceUnavailableException("Превышено число одновременных потоковых соединений, "
+                    + "повторите запрос позже");
+        }
+        ResponseEntity<StreamingResponseBody> response;
+        try {
+            response = openStream(path, userId, mediaType, parameters);
+        } catch (RuntimeException e) {
+            streamPermits.release();
+            throw e;
+        }
+        StreamingResponseBody body = response.getBody();
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .body(out -> {
+                    try {
+                        body.writeTo(out);
+                    } finally {
+                        streamPermits.release();
+                    }
+                });
+    }
+
+    /*
+     * Ждёт только заголовков ответа сервера, дальше байты событий пересылаются клиенту по мере поступления
+     */
+    protected ResponseEntity<ResponseBodyEmitter> events(String path, Long userId, @Nullable String lastEventId) {
+        URI uri = rest.getUriTemplateHandler().expand(path);
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(EVENTS_RESPONSE_TIMEOUT)
+                // JSON нужен, чтобы сервер мог вернуть тело ошибки вместо потока
+                .header(HttpHeaders.ACCEPT, MediaType.TEXT_EVENT_STREAM_VALUE + ", " + MediaType.APPLICATION_JSON_VALUE);
+        if (userId != null) {
+            request.header("X-Sharer-User-Id", String.valueOf(userId));
+        }
+        if (lastEventId != null) {
+            request.header(LAST_EVENT_ID_HEADER, lastEventId);
+        }
+        HttpResponse<Flow.Publisher<List<ByteBuffer>>> response;
+        try {
+            response = eventClient.send(request.build(), HttpResponse.BodyHandlers.ofPublisher());
+        } catch (IOException e) {
+            throw new ResourceAccessException("Ошибка запроса к " + uri + ": " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Запрос к " + uri + " прерван");
+        }
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter();
+        HttpStatus status = HttpStatus.valueOf(response.statusCode());
+        if (!status.is2xxSuccessful()) {
+            HttpResponse.BodySubscriber<byte[]> error = HttpResponse.BodySubscribers.ofByteArray();
+            response.body().subscribe(error);
+            try {
+                emitter.send(error.getBody().toCompletableFuture().join(), MediaType.APPLICATION_JSON);
+            } catch (IOException e) {
+                throw new ResourceAccessException("Ошибка ответа " + uri + ": " + e.getMessage(), e);
+            }
+            emitter.complete();
+            return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(emitter);
+        }
+        response.body().subscribe(new EventForwarder(emitter));
+        return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(emitter);
+    }
+
+    private ResponseEntity<StreamingResponseBody> openStream(String path, Long userId, MediaType mediaType,
+                                                             @Nullable Map<String, Object> parameters) {
+        URI uri = rest.getUriTemplateHandler().expand(path, parameters != null ? parameters : Map.of());
+        ClientHttpResponse response;
+        try {
+            ClientHttpRequest request = streamRequestFactory.createRequest(uri, HttpMethod.GET);
+            // JSON нужен, чтобы сервер мог вернуть тело ошибки вместо потока
+            request.getHeaders().setAccept(List.of(mediaType, MediaType.APPLICATION_JSON));
+            if (userId != null) {
+                request.getHeaders().set("X-Sharer-User-Id", String.valueOf(userId));
+            }
+            response = request.execute();
+            if (!response.getStatusCode().is2xxSuccessful()) {
+                try (response) {
+                    byte[] body = StreamUtils.copyToByteArray(response.getBody());
+                    return ResponseEntity.status(response.getStatusCode())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(out -> out.write(body));
+                }
+            }
+        } catch (IOException e) {
+            throw new ResourceAccessException("Ошибка запроса к " + uri + ": " + e.getMessage(), e);
+        }
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .body(out -> {
+                    out.flush();
+                    try (response; InputStream in = response.getBody()) {
+                        byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+                        int read;
+                        while ((read = in.read(buffer)) != -1) {
+                            out.write(buffer, 0, read);
+                            out.flush();
+                        }
+                    }
+                });
+    }
+
     private <T> ResponseEntity<Object> makeAndSendRequest(HttpMethod method, String path, Long userId, @Nullable Map<String, Object> parameters, @Nullable T body) {
         HttpEntity<T> requestEntity = new HttpEntity<>(body, defaultHeaders(userId));
 
@@ -114,4 +263,52 @@ public class BaseClient {
 
         return responseBuilder.build();
     }
+
+    /*
+     * Запрашивает следующую порцию байтов у сервера только после записи предыдущей клиенту. Обрыв соединения
+     * с сервером завершает ответ без ошибки: клиент SSE переподключится сам
+     */
+    private static class EventForwarder implements Flow.Subscriber<List<ByteBuffer>> {
+        private final ResponseBodyEmitter emitter;
+        private Flow.Subscription subscription;
+
+        private EventForwarder(ResponseBodyEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            emitter.onCompletion(subscription::cancel);
+            emitter.onError(e -> subscription.cancel());
+            emitter.onTimeout(emitter::complete);
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            try {
+                for (ByteBuffer buffer : buffers) {
+                    byte[] bytes = new byte[buffer.remaining()];
+                    buffer.get(bytes);
+                    emitter.send(bytes, MediaType.TEXT_EVENT_STREAM);
+                }
+            } catch (IOException | IllegalStateException e) {
+                subscription.cancel();
+                emitter.completeWithError(e);
+                return;
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            emitter.complete();
+        }
+
+        @Override
+        public void onComplete() {
+            emitter.complete();
+        }
+    }
 }
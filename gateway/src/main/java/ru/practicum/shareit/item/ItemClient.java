@@ -10,22 +10,29 @@ import org.springframework.web.util.DefaultUriBuilderFactory;
 import ru.practicum.shareit.client.BaseClient;
 import ru.practicum.shareit.item.dto.CommentRequestDto;
 import ru.practicum.shareit.item.dto.ItemRequestDto;
+import ru.practicum.shareit.item.dto.ItemSearchMode;
+import ru.practicum.shareit.item.dto.ItemSearchSort;
 
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.Map;
 
 @Service
 public class ItemClient extends BaseClient {
 
     private static final String API_PREFIX = "/items";
+    private final ItemSuggestCache suggestCache;
 
     @Autowired
-    public ItemClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public ItemClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder,
+                      ItemSuggestCache suggestCache) {
         super(
                 builder
                         .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
                         .requestFactory(HttpComponentsClientHttpRequestFactory::new)
                         .build()
         );
+        this.suggestCache = suggestCache;
     }
 
     public ResponseEntity<Object> createItem(ItemRequestDto itemRequestDto, Long userId) {
@@ -45,9 +52,39 @@ public class ItemClient extends BaseClient {
         return get("?from={from}&size={size}", userId, parameters);
     }
 
-    public ResponseEntity<Object> searchItems(String text, Long userId, Integer from, Integer size) {
-        Map<String, Object> parameters = Map.of("text", text, "from", from, "size", size);
-        return get("/search?text={text}&from={from}&size={size}", userId, parameters);
+    public ResponseEntity<Object> searchItems(String text, Long userId, ItemSearchMode mode, ItemSearchSort sort,
+                                              Integer from, Integer size) {
+        Map<String, Object> parameters = new HashMap<>(Map.of("text", text, "from", from, "size", size));
+        String path = "/search?text={text}&from={from}&size={size}";
+        if (mode != null) {
+            parameters.put("mode", mode);
+            path += "&mode={mode}";
+        }
+        if (sort != null) {
+            parameters.put("sort", sort);
+            path += "&sort={sort}";
+        }
+        return get(path, userId, parameters);
+    }
+
+    public ResponseEntity<Object> suggestItemNames(String prefix, Integer limit) {
+        Map<String, Object> parameters = Map.of("prefix", prefix, "limit", limit);
+        return suggestCache.get(prefix, limit,
+                () -> get("/suggest?prefix={prefix}&limit={limit}", null, parameters));
+    }
+
+    public ResponseEntity<Object> getItemAvailability(Long itemId, Long userId, LocalDateTime from, LocalDateTime to) {
+        StringBuilder path = new StringBuilder("/" + itemId + "/availability");
+        Map<String, Object> parameters = new HashMap<>();
+        if (from != null) {
+            parameters.put("from", from);
+            path.append("?from={from}");
+        }
+        if (to != null) {
+            parameters.put("to", to);
+            path.append(from != null ? "&" : "?").append("to={to}");
+        }
+        return get(path.toString(), userId, parameters);
     }
 
     public ResponseEntity<Object> createComment(Long userId, Long itemId, CommentRequestDto commentRequestDto) {
@@ -2,18 +2,23 @@ package ru.practicum.shareit.item;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.exception.BadRequestException;
 import ru.practicum.shareit.item.dto.CommentRequestDto;
 import ru.practicum.shareit.item.dto.ItemRequestDto;
+import ru.practicum.shareit.item.dto.ItemSearchMode;
+import ru.practicum.shareit.item.dto.ItemSearchSort;
 import ru.practicum.shareit.validation.Create;
 import ru.practicum.shareit.validation.Update;
 
 import javax.validation.Valid;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
+import java.time.LocalDateTime;
 
 import static ru.practicum.shareit.util.Constant.HEADER;
 
@@ -64,11 +69,39 @@ public class ItemController {
     @GetMapping("/search")
     public ResponseEntity<Object> searchItems(@RequestParam("text") String text,
                                               @RequestHeader(HEADER) Long userId,
+                                              @RequestParam(name = "mode", required = false) String modeParam,
+                                              @RequestParam(name = "sort", required = false) String sortParam,
                                               @RequestParam(defaultValue = "0") @PositiveOrZero Integer from,
                                               @RequestParam(defaultValue = "10") @Positive Integer size) {
+        ItemSearchMode mode = modeParam == null ? null : ItemSearchMode.from(modeParam)
+                .orElseThrow(() -> new BadRequestException("Unknown search mode: " + modeParam));
+        ItemSearchSort sort = sortParam == null ? null : ItemSearchSort.from(sortParam)
+                .orElseThrow(() -> new BadRequestException("Unknown search sort: " + sortParam));
         log.info("Получен GET запрос по эндпоинту '/items/search' от user c id {} на получение списка item " +
                 "по запросу {}", userId, text);
-        return itemClient.searchItems(text, userId, from, size);
+        return itemClient.searchItems(text, userId, mode, sort, from, size);
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<Object> suggestItemNames(@RequestParam("prefix") String prefix,
+                                                   @RequestParam(defaultValue = "10") @Positive Integer limit) {
+        log.info("Получен GET запрос по эндпоинту '/items/suggest' на подсказки названий items по префиксу {}",
+                prefix);
+        return itemClient.suggestItemNames(prefix, limit);
+    }
+
+    @GetMapping("/{id}/availability")
+    public ResponseEntity<Object> getItemAvailability(
+            @PathVariable Long id,
+            @RequestHeader(HEADER) Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new BadRequestException("Начало периода должно быть раньше его конца");
+        }
+        log.info("Получен GET запрос по эндпоинту '/items/{}/availability' от user c id {} на получение свободных "
+                + "периодов item с {} по {}", id, userId, from, to);
+        return itemClient.getItemAvailability(id, userId, from, to);
     }
 
     @PostMapping("/{itemId}/comment")
@@ -0,0 +1,57 @@
+package ru.practicum.shareit.item;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Короткий кэш подсказок названий items: запросы на каждое нажатие клавиши с одним префиксом
+ * в пределах ttl не доходят до сервера, одновременные промахи по одному префиксу загружают его один раз,
+ * а браузер получает Cache-Control на оставшийся срок ответа. Вытеснение W-TinyLFU (Caffeine) по размеру.
+ */
+@Component
+public class ItemSuggestCache {
+    private final Duration ttl;
+    private final Cache<String, Object> cache;
+
+    public ItemSuggestCache(@Value("${shareit-gateway.suggest.cache-ttl:5s}") Duration ttl,
+                            @Value("${shareit-gateway.suggest.cache-size:10000}") int maxEntries) {
+        this.ttl = ttl;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /*
+     * Ответы с ошибкой не кэшируются и возвращаются как есть
+     */
+    public ResponseEntity<Object> get(String prefix, Integer limit, Supplier<ResponseEntity<Object>> loader) {
+        String key = prefix.stripLeading().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ") + "\n" + limit;
+        AtomicReference<ResponseEntity<Object>> loaded = new AtomicReference<>();
+        Object body = cache.get(key, missing -> {
+            ResponseEntity<Object> response = loader.get();
+            loaded.set(response);
+            return response.getStatusCode().is2xxSuccessful() ? response.getBody() : null;
+        });
+        if (body == null) {
+            // Ошибка своей загрузки или чужой, которую этот запрос ждал
+            return loaded.get() != null ? loaded.get() : loader.get();
+        }
+        Duration age = cache.policy().expireAfterWrite()
+                .flatMap(expiration -> expiration.ageOf(key))
+                .orElse(Duration.ZERO);
+        Duration remaining = ttl.minus(age);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(remaining.isNegative() ? Duration.ZERO : remaining))
+                .body(body);
+    }
+}
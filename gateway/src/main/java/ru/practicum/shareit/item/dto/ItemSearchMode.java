@@ -0,0 +1,23 @@
+package ru.practicum.shareit.item.dto;
+
+import java.util.Optional;
+
+public enum ItemSearchMode {
+    // Подстрока через LIKE
+    LIKE,
+    // Полнотекстовый поиск
+    FTS,
+    // Подстрока по триграммам с сортировкой по сходству
+    TRGM,
+    // Подстрока по индексу в памяти сервера
+    INDEX;
+
+    public static Optional<ItemSearchMode> from(String stringMode) {
+        for (ItemSearchMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(stringMode)) {
+                return Optional.of(mode);
+            }
+        }
+        return Optional.empty();
+    }
+}
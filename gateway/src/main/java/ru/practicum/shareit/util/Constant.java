@@ -2,5 +2,6 @@ package ru.practicum.shareit.util;
 
 public class Constant {
     public static final String HEADER = "X-Sharer-User-Id";
+    public static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
     public static final String DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss";
 }
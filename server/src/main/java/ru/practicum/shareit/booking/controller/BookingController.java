@@ -3,16 +3,25 @@ package ru.practicum.shareit.booking.controller;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.booking.dto.BookingApproveRequestDto;
+import ru.practicum.shareit.booking.dto.BookingApproveResultDto;
+import ru.practicum.shareit.booking.dto.BookingCursor;
 import ru.practicum.shareit.booking.dto.BookingRequestDto;
 import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.dto.BookingSummaryDto;
 import ru.practicum.shareit.booking.service.BookingService;
 
 import java.util.List;
 
 import static ru.practicum.shareit.utils.Constants.HEADER;
+import static ru.practicum.shareit.utils.Constants.LAST_EVENT_ID_HEADER;
+import static ru.practicum.shareit.utils.Constants.NEXT_CURSOR_HEADER;
 
 @Slf4j
 @Controller
@@ -29,6 +38,15 @@ public class BookingController {
         return new ResponseEntity<>(bookingService.createBooking(bookingRequestDto, userId), HttpStatus.CREATED);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<BookingResponseDto>> createBookings(
+            @RequestBody List<BookingRequestDto> bookingRequestDtos,
+            @RequestHeader(HEADER) Long userId) {
+        log.info("Получен POST запрос по эндпоинту '/bookings/batch' от user с id {} на добавление {} bookings",
+                userId, bookingRequestDtos.size());
+        return new ResponseEntity<>(bookingService.createBookings(bookingRequestDtos, userId), HttpStatus.CREATED);
+    }
+
     @PatchMapping("/{bookingId}")
     public ResponseEntity<BookingResponseDto> updateBooking(@RequestHeader(HEADER) Long userId,
                                                             @PathVariable Long bookingId,
@@ -39,6 +57,15 @@ public class BookingController {
         return ResponseEntity.ok(bookingService.updateBooking(userId, bookingId, approved));
     }
 
+    @PatchMapping("/approve")
+    public ResponseEntity<List<BookingApproveResultDto>> approveBookings(
+            @RequestHeader(HEADER) Long userId,
+            @RequestBody BookingApproveRequestDto bookingApproveRequestDto) {
+        log.info("Получен PATCH запрос по эндпоинту '/bookings/approve' от user c id {} на изменение статуса "
+                + "booking {}", userId, bookingApproveRequestDto);
+        return ResponseEntity.ok(bookingService.approveBookings(userId, bookingApproveRequestDto));
+    }
+
     @GetMapping("/{bookingId}")
     public ResponseEntity<BookingResponseDto> getBookingById(@PathVariable Long bookingId,
                                                              @RequestHeader(HEADER) Long userId) {
@@ -52,10 +79,55 @@ public class BookingController {
             @RequestHeader(HEADER) Long userId,
             @RequestParam(defaultValue = "ALL") String state,
             @RequestParam(defaultValue = "0") Integer from,
-            @RequestParam(defaultValue = "10") Integer size) {
+            @RequestParam(defaultValue = "10") Integer size,
+            @RequestParam(required = false) String after) {
         log.info("Получен GET запрос по эндпоинту '/bookings' от user c id {} " +
                 "на получение списка всех booking этого user", userId);
-        return ResponseEntity.ok(bookingService.getAllBookingsByUserId(userId, state, from, size));
+        List<BookingResponseDto> bookings = after == null
+                ? bookingService.getAllBookingsByUserId(userId, state, from, size)
+                : bookingService.getAllBookingsByUserIdAfter(userId, state, after, size);
+        return withNextCursor(bookings, size);
+    }
+
+    @GetMapping(path = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportBookingsByUserId(@RequestHeader(HEADER) Long userId) {
+        log.info("Получен GET запрос по эндпоинту '/bookings/export' от user c id {} на выгрузку всех booking "
+                + "этого user", userId);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(bookingService.exportBookingsByUserId(userId));
+    }
+
+    @GetMapping(path = "/owner/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportBookingsByOwnerId(@RequestHeader(HEADER) Long ownerId) {
+        log.info("Получен GET запрос по эндпоинту '/bookings/owner/export' от user c id {} на выгрузку всех "
+                + "booking его items", ownerId);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(bookingService.exportBookingsByOwnerId(ownerId));
+    }
+
+    @GetMapping("/summary")
+    public ResponseEntity<BookingSummaryDto> getBookingSummaryByUserId(@RequestHeader(HEADER) Long userId) {
+        log.info("Получен GET запрос по эндпоинту '/bookings/summary' от user c id {} на получение количества "
+                + "booking по статусам", userId);
+        return ResponseEntity.ok(bookingService.getBookingSummaryByUserId(userId));
+    }
+
+    @GetMapping("/owner/summary")
+    public ResponseEntity<BookingSummaryDto> getBookingSummaryByOwnerId(@RequestHeader(HEADER) Long ownerId) {
+        log.info("Получен GET запрос по эндпоинту '/bookings/owner/summary' от user c id {} на получение количества "
+                + "booking по статусам для его items", ownerId);
+        return ResponseEntity.ok(bookingService.getBookingSummaryByOwnerId(ownerId));
+    }
+
+    @GetMapping(path = "/owner/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeToOwnerEvents(@RequestHeader(HEADER) Long ownerId,
+                                             @RequestHeader(name = LAST_EVENT_ID_HEADER, required = false)
+                                             Long lastEventId) {
+        log.info("Получен GET запрос по эндпоинту '/bookings/owner/events' от user c id {} на подписку на события "
+                + "booking его items", ownerId);
+        return bookingService.subscribeToOwnerEvents(ownerId, lastEventId);
     }
 
     @GetMapping("/owner")
@@ -63,9 +135,21 @@ public class BookingController {
             @RequestHeader(HEADER) Long ownerId,
             @RequestParam(defaultValue = "ALL") String state,
             @RequestParam(defaultValue = "0") Integer from,
-            @RequestParam(defaultValue = "10") Integer size) {
+            @RequestParam(defaultValue = "10") Integer size,
+            @RequestParam(required = false) String after) {
         log.info("Получен GET запрос по эндпоинту '/bookings/owner' от user c id {} на получение списка booking всех "
                 + "items для которых он owner", ownerId);
-        return ResponseEntity.ok(bookingService.getAllBookingsByOwnerId(ownerId, state, from, size));
+        List<BookingResponseDto> bookings = after == null
+                ? bookingService.getAllBookingsByOwnerId(ownerId, state, from, size)
+                : bookingService.getAllBookingsByOwnerIdAfter(ownerId, state, after, size);
+        return withNextCursor(bookings, size);
+    }
+
+    private ResponseEntity<List<BookingResponseDto>> withNextCursor(List<BookingResponseDto> bookings, Integer size) {
+        if (bookings.isEmpty() || bookings.size() < size) {
+            return ResponseEntity.ok(bookings);
+        }
+        String nextCursor = BookingCursor.of(bookings.get(bookings.size() - 1)).encode();
+        return ResponseEntity.ok().header(NEXT_CURSOR_HEADER, nextCursor).body(bookings);
     }
 }
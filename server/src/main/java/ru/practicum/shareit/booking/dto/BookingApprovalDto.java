@@ -0,0 +1,17 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import ru.practicum.shareit.booking.model.Status;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class BookingApprovalDto {
+    private Long id;
+    private Long ownerId;
+    private Long itemId;
+    private LocalDateTime start;
+    private Status status;
+}
@@ -0,0 +1,18 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.practicum.shareit.booking.model.ApproveResult;
+import ru.practicum.shareit.booking.model.Status;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookingApproveResultDto {
+    private Long bookingId;
+    private ApproveResult result;
+    private Status status;
+}
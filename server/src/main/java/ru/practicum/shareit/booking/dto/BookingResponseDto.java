@@ -19,4 +19,14 @@ public class BookingResponseDto {
     private ItemShortResponseDto item;
     private UserDto booker;
     private Status status;
+
+    public BookingResponseDto(Long id, LocalDateTime start, LocalDateTime end, Status status, Long itemId,
+                              String itemName, Long bookerId, String bookerName, String bookerEmail) {
+        this.id = id;
+        this.start = start;
+        this.end = end;
+        this.status = status;
+        this.item = ItemShortResponseDto.builder().id(itemId).name(itemName).build();
+        this.booker = new UserDto(bookerId, bookerName, bookerEmail);
+    }
 }
@@ -0,0 +1,19 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookingSummaryDto {
+    private Long all;
+    private Long past;
+    private Long current;
+    private Long future;
+    private Long waiting;
+    private Long rejected;
+}
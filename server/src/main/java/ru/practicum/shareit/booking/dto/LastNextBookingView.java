@@ -0,0 +1,14 @@
+package ru.practicum.shareit.booking.dto;
+
+public interface LastNextBookingView {
+    String LAST = "LAST";
+    String NEXT = "NEXT";
+
+    Long getId();
+
+    Long getItemId();
+
+    Long getBookerId();
+
+    String getPosition();
+}
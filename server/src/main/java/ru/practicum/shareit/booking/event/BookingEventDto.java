@@ -0,0 +1,21 @@
+package ru.practicum.shareit.booking.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.practicum.shareit.booking.model.Status;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookingEventDto {
+    private BookingEventType type;
+    private Long bookingId;
+    private Long itemId;
+    private LocalDateTime start;
+    private Status status;
+}
@@ -0,0 +1,218 @@
+package ru.practicum.shareit.booking.event;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Подписки owners на события booking. Последние replay-size событий каждого owner не старше replay-ttl хранятся
+ * в кольцевом буфере с монотонно растущими id, поэтому подписка с Last-Event-ID получает события, отправленные
+ * пока клиент переподключался. Отправка идёт в отдельных потоках: медленный подписчик не задерживает запись booking
+ * и других подписчиков, а отставший больше чем на replay-size событий отключается и догоняет их при переподключении.
+ */
+@Slf4j
+@Component
+public class BookingEventRegistry {
+    /*
+     * Все изменения канала owner выполняются внутри compute по его id
+     */
+    private final Map<Long, Channel> channels = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ExecutorService sender;
+    private final long timeout;
+    private final int replaySize;
+    private final long replayTtl;
+
+    public BookingEventRegistry(@Value("${shareit.booking.events.timeout:PT30M}") Duration timeout,
+                                @Value("${shareit.booking.events.replay-size:100}") int replaySize,
+                                @Value("${shareit.booking.events.replay-ttl:PT5M}") Duration replayTtl,
+                                @Value("${shareit.booking.events.send-threads:4}") int sendThreads) {
+        this.timeout = timeout.toMillis();
+        this.replaySize = replaySize;
+        this.replayTtl = replayTtl.toMillis();
+        this.sender = Executors.newFixedThreadPool(sendThreads, new CustomizableThreadFactory("booking-events-"));
+    }
+
+    /*
+     * lastEventId - id последнего полученного клиентом события или null для новой подписки. id больше выданных
+     * остался от прошлого запуска сервера, тогда отправляется весь буфер
+     */
+    public SseEmitter subscribe(Long ownerId, Long lastEventId) {
+        Subscriber subscriber = new Subscriber(ownerId, new SseEmitter(timeout));
+        SseEmitter emitter = subscriber.emitter;
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+        channels.compute(ownerId, (id, channel) -> {
+            Channel current = channel == null ? new Channel() : channel;
+            current.subscribers.add(subscriber);
+            // Первый комментарий сразу отправляет заголовки, не дожидаясь события или heartbeat
+            subscriber.enqueue(SseEmitter.event().comment("subscribed"));
+            if (lastEventId != null) {
+                long after = lastEventId > sequence.get() ? 0 : lastEventId;
+                current.recent.stream()
+                        .filter(event -> event.id > after)
+                        .forEach(event -> subscriber.enqueue(event.toSse()));
+            }
+            return current;
+        });
+        log.info("Owner с id: {} подписался на события booking после id: {}", ownerId, lastEventId);
+        return emitter;
+    }
+
+    public void publish(Long ownerId, BookingEventDto event) {
+        channels.compute(ownerId, (id, channel) -> {
+            Channel current = channel == null ? new Channel() : channel;
+            Event published = new Event(sequence.incrementAndGet(), System.currentTimeMillis(), event);
+            if (current.recent.size() == replaySize) {
+                current.recent.removeFirst();
+            }
+            current.recent.addLast(published);
+            current.subscribers.forEach(subscriber -> subscriber.enqueue(published.toSse()));
+            return current;
+        });
+    }
+
+    /*
+     * Заодно убирает из буферов события старше replay-ttl и каналы без событий и подписчиков
+     */
+    @Scheduled(fixedDelayString = "${shareit.booking.events.heartbeat:PT15S}")
+    public void heartbeat() {
+        long expired = System.currentTimeMillis() - replayTtl;
+        channels.keySet().forEach(ownerId -> channels.computeIfPresent(ownerId, (id, channel) -> {
+            while (!channel.recent.isEmpty() && channel.recent.peekFirst().publishedAt < expired) {
+                channel.recent.removeFirst();
+            }
+            channel.subscribers.forEach(subscriber -> subscriber.enqueue(SseEmitter.event().comment("heartbeat")));
+            return channel.isEmpty() ? null : channel;
+        }));
+    }
+
+    public int subscriberCount(Long ownerId) {
+        Channel channel = channels.get(ownerId);
+        return channel == null ? 0 : channel.subscribers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        channels.computeIfPresent(subscriber.ownerId, (id, channel) -> {
+            channel.subscribers.remove(subscriber);
+            return channel.isEmpty() ? null : channel;
+        });
+    }
+
+    private static class Channel {
+        private final Deque<Event> recent = new ArrayDeque<>();
+        private final Set<Subscriber> subscribers = new HashSet<>();
+
+        private boolean isEmpty() {
+            return recent.isEmpty() && subscribers.isEmpty();
+        }
+    }
+
+    private static class Event {
+        private final long id;
+        private final long publishedAt;
+        private final BookingEventDto event;
+
+        private Event(long id, long publishedAt, BookingEventDto event) {
+            this.id = id;
+            this.publishedAt = publishedAt;
+            this.event = event;
+        }
+
+        /*
+         * SseEventBuilder накапливает текст при отправке, поэтому каждому подписчику нужен свой
+         */
+        private SseEmitter.SseEventBuilder toSse() {
+            return SseEmitter.event()
+                    .id(String.valueOf(id))
+                    .name(event.getType().getEventName())
+                    .data(event, MediaType.APPLICATION_JSON);
+        }
+    }
+
+    /*
+     * Очередь событий подписчика разбирает не больше одного потока sender сразу, так что порядок сохраняется
+     */
+    private class Subscriber {
+        private final Long ownerId;
+        private final SseEmitter emitter;
+        private final Queue<SseEmitter.SseEventBuilder> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean lagging;
+
+        private Subscriber(Long ownerId, SseEmitter emitter) {
+            this.ownerId = ownerId;
+            this.emitter = emitter;
+        }
+
+        private void enqueue(SseEmitter.SseEventBuilder event) {
+            if (pending.incrementAndGet() > replaySize) {
+                lagging = true;
+            } else {
+                queue.add(event);
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            if (lagging) {
+                queue.clear();
+                unsubscribe(this);
+                emitter.complete();
+                log.info("Owner с id: {} отключён от событий booking: отстал больше чем на {} событий", ownerId,
+                        replaySize);
+                return;
+            }
+            SseEmitter.SseEventBuilder event;
+            while ((event = queue.poll()) != null) {
+                pending.decrementAndGet();
+                try {
+                    emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    queue.clear();
+                    unsubscribe(this);
+                    emitter.completeWithError(e);
+                    return;
+                }
+            }
+            scheduled.set(false);
+            if (!queue.isEmpty() || lagging) {
+                schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package ru.practicum.shareit.booking.event;
+
+public enum BookingEventType {
+    BOOKING_CREATED("booking-created"),
+    BOOKING_STATUS_CHANGED("booking-status-changed");
+
+    private final String eventName;
+
+    BookingEventType(String eventName) {
+        this.eventName = eventName;
+    }
+
+    public String getEventName() {
+        return eventName;
+    }
+}
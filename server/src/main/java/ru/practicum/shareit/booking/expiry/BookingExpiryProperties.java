@@ -0,0 +1,15 @@
+package ru.practicum.shareit.booking.expiry;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "shareit.booking.expiry")
+public class BookingExpiryProperties {
+    private boolean enabled = true;
+    private int chunkSize = 500;
+}
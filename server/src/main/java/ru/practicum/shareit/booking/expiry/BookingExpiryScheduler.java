@@ -0,0 +1,53 @@
+package ru.practicum.shareit.booking.expiry;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.service.BookingService;
+
+import java.time.LocalDateTime;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "shareit.booking.expiry", name = "enabled", havingValue = "true",
+        matchIfMissing = true)
+public class BookingExpiryScheduler {
+    private final BookingService bookingService;
+    private final BookingExpiryProperties properties;
+    private final Counter expiredCounter;
+    private final Timer runTimer;
+
+    public BookingExpiryScheduler(BookingService bookingService, BookingExpiryProperties properties,
+                                  MeterRegistry meterRegistry) {
+        this.bookingService = bookingService;
+        this.properties = properties;
+        this.expiredCounter = Counter.builder("shareit.booking.expiry.rows")
+                .description("WAITING bookings moved to CANCELED after their start")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("shareit.booking.expiry.duration")
+                .description("Duration of one expiry run")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.booking.expiry.interval:PT1M}")
+    public void expireWaitingBookings() {
+        runTimer.record(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            int chunkSize = properties.getChunkSize();
+            int total = 0;
+            int expired;
+            do {
+                expired = bookingService.expireWaitingBookings(now, chunkSize);
+                expiredCounter.increment(expired);
+                total += expired;
+            } while (expired == chunkSize);
+            if (total > 0) {
+                log.info("Просроченных booking в статусе WAITING переведено в CANCELED: {}", total);
+            }
+        });
+    }
+}
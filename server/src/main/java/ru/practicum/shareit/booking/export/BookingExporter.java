@@ -0,0 +1,67 @@
+package ru.practicum.shareit.booking.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Пишет booking в формате NDJSON по одной строке, не собирая выборку в памяти.
+ * Курсор PostgreSQL с fetch size работает только внутри транзакции, поэтому выгрузка транзакционная.
+ */
+@Component
+public class BookingExporter {
+    private final BookingRepository bookingRepository;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter writer;
+    private final int fetchSize;
+
+    public BookingExporter(BookingRepository bookingRepository, ObjectMapper objectMapper,
+                           @Value("${shareit.booking.export.fetch-size:500}") int fetchSize) {
+        this.bookingRepository = bookingRepository;
+        this.objectMapper = objectMapper;
+        // Без flush на каждой строке ответ уходит блоками по размеру буфера сервлета
+        this.writer = objectMapper.writerFor(BookingResponseDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.fetchSize = fetchSize;
+    }
+
+    @Transactional(readOnly = true)
+    public long exportByBookerId(Long bookerId, OutputStream out) throws IOException {
+        try (Stream<BookingResponseDto> bookings = bookingRepository.streamByBookerId(bookerId, fetchSize)) {
+            return write(bookings, out);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public long exportByOwnerId(Long ownerId, OutputStream out) throws IOException {
+        try (Stream<BookingResponseDto> bookings = bookingRepository.streamByOwnerId(ownerId, fetchSize)) {
+            return write(bookings, out);
+        }
+    }
+
+    private long write(Stream<BookingResponseDto> bookings, OutputStream out) throws IOException {
+        long count = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            Iterator<BookingResponseDto> iterator = bookings.iterator();
+            while (iterator.hasNext()) {
+                writer.writeValue(generator, iterator.next());
+                generator.writeRaw('\n');
+                count++;
+            }
+        }
+        return count;
+    }
+}
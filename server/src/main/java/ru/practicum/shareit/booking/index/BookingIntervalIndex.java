@@ -0,0 +1,102 @@
+package ru.practicum.shareit.booking.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.dto.BookingIntervalDto;
+import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Интервалы WAITING и APPROVED bookings по items в памяти процесса. Bookings, изменённые другим экземпляром
+ * сервера, индекс не видит, поэтому найденное пересечение - только подсказка, которую нужно проверить по БД.
+ * Закончившиеся интервалы периодически удаляются.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BookingIntervalIndex {
+    public static final List<Status> BLOCKING_STATUSES = List.of(Status.WAITING, Status.APPROVED);
+    private final BookingRepository bookingRepository;
+    private final Map<Long, IntervalTree> trees = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void load() {
+        List<BookingIntervalDto> intervals = bookingRepository.findIntervalsByEndAfterAndStatusIn(LocalDateTime.now(),
+                BLOCKING_STATUSES);
+        intervals.forEach(interval -> add(interval.getItemId(), interval.getId(), interval.getStart(),
+                interval.getEnd()));
+        log.info("Индекс интервалов bookings загружен: {} bookings для {} items", intervals.size(), trees.size());
+    }
+
+    public Optional<Long> findOverlap(Long itemId, LocalDateTime start, LocalDateTime end) {
+        IntervalTree tree = trees.get(itemId);
+        if (tree == null) {
+            return Optional.empty();
+        }
+        synchronized (tree) {
+            return tree.findOverlap(start, end);
+        }
+    }
+
+    public void add(Long itemId, Long bookingId, LocalDateTime start, LocalDateTime end) {
+        trees.compute(itemId, (id, tree) -> {
+            IntervalTree result = tree == null ? new IntervalTree() : tree;
+            synchronized (result) {
+                result.insert(bookingId, start, end);
+            }
+            return result;
+        });
+    }
+
+    /*
+     * Заменяет интервалы item актуальными из БД
+     */
+    public void reload(Long itemId, List<BookingIntervalDto> intervals) {
+        trees.compute(itemId, (id, tree) -> {
+            IntervalTree result = new IntervalTree();
+            intervals.forEach(interval -> result.insert(interval.getId(), interval.getStart(), interval.getEnd()));
+            return result.isEmpty() ? null : result;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.booking.index.prune-interval:PT10M}")
+    public void prune() {
+        prune(LocalDateTime.now());
+    }
+
+    public int prune(LocalDateTime now) {
+        int removed = 0;
+        for (Long itemId : trees.keySet()) {
+            int[] count = new int[1];
+            trees.computeIfPresent(itemId, (id, tree) -> {
+                synchronized (tree) {
+                    count[0] = tree.removeEndedBefore(now);
+                    return tree.isEmpty() ? null : tree;
+                }
+            });
+            removed += count[0];
+        }
+        if (removed > 0) {
+            log.info("Из индекса интервалов удалено {} закончившихся bookings", removed);
+        }
+        return removed;
+    }
+
+    public void remove(Long itemId, Long bookingId, LocalDateTime start) {
+        trees.computeIfPresent(itemId, (id, tree) -> {
+            synchronized (tree) {
+                tree.remove(bookingId, start);
+                return tree.isEmpty() ? null : tree;
+            }
+        });
+    }
+}
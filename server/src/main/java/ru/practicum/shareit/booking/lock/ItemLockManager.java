@@ -0,0 +1,94 @@
+package ru.practicum.shareit.booking.lock;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Сериализует создание booking для одного item внутри процесса.
+ * Item отображается на один из фиксированного набора lock, поэтому разные item почти всегда работают параллельно.
+ */
+@Component
+public class ItemLockManager {
+    private final ReentrantLock[] stripes;
+    private final Counter acquisitions;
+    private final Counter contended;
+    private final Timer waitTimer;
+
+    public ItemLockManager(@Value("${shareit.booking.lock.stripes:64}") int stripeCount, MeterRegistry meterRegistry) {
+        stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        acquisitions = Counter.builder("shareit.booking.lock.acquisitions")
+                .description("Item lock acquisitions")
+                .register(meterRegistry);
+        contended = Counter.builder("shareit.booking.lock.contended")
+                .description("Item lock acquisitions that had to wait for another thread")
+                .register(meterRegistry);
+        waitTimer = Timer.builder("shareit.booking.lock.wait")
+                .description("Time spent waiting for a contended item lock")
+                .register(meterRegistry);
+        Gauge.builder("shareit.booking.lock.queued", this, ItemLockManager::queuedThreads)
+                .description("Threads currently waiting on item locks")
+                .register(meterRegistry);
+        Gauge.builder("shareit.booking.lock.stripes", this, manager -> manager.stripes.length)
+                .register(meterRegistry);
+    }
+
+    public StripeLock lock(Collection<Long> itemIds) {
+        int[] indexes = itemIds.stream().mapToInt(this::stripeIndex).distinct().sorted().toArray();
+        for (int i = 0; i < indexes.length; i++) {
+            try {
+                acquire(stripes[indexes[i]]);
+            } catch (RuntimeException e) {
+                new StripeLock(Arrays.copyOf(indexes, i)).close();
+                throw e;
+            }
+        }
+        return new StripeLock(indexes);
+    }
+
+    int stripeIndex(Long itemId) {
+        int hash = itemId.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), stripes.length);
+    }
+
+    private void acquire(ReentrantLock stripe) {
+        acquisitions.increment();
+        if (stripe.tryLock()) {
+            return;
+        }
+        contended.increment();
+        long started = System.nanoTime();
+        stripe.lock();
+        waitTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    private double queuedThreads() {
+        return Arrays.stream(stripes).mapToInt(ReentrantLock::getQueueLength).sum();
+    }
+
+    public class StripeLock implements AutoCloseable {
+        private final int[] indexes;
+
+        private StripeLock(int[] indexes) {
+            this.indexes = indexes;
+        }
+
+        @Override
+        public void close() {
+            for (int i = indexes.length - 1; i >= 0; i--) {
+                stripes[indexes[i]].unlock();
+            }
+        }
+    }
+}
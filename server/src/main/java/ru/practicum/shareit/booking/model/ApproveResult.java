@@ -0,0 +1,8 @@
+package ru.practicum.shareit.booking.model;
+
+public enum ApproveResult {
+    UPDATED,
+    NOT_FOUND,
+    NOT_OWNER,
+    ALREADY_PROCESSED
+}
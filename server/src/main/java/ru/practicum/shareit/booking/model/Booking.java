@@ -29,7 +29,12 @@ public class Booking {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "booker_id")
     private User booker;
-    @Enumerated(EnumType.STRING)
+    @Convert(converter = StatusConverter.class)
     @Column(name = "status")
     private Status status;
+    @Column(name = "owner_id")
+    private Long ownerId;
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
 }
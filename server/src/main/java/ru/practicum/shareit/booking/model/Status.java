@@ -1,8 +1,28 @@
 package ru.practicum.shareit.booking.model;
 
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/*
+ * В bookings.status хранится code. Коды зашиты в schema-postgresql.sql (exclusion constraint, частичные индексы),
+ * поэтому менять их нельзя, новые статусы получают следующий свободный код
+ */
+@Getter
+@RequiredArgsConstructor
 public enum Status {
-    WAITING,
-    APPROVED,
-    REJECTED,
-    CANCELED
+    WAITING((short) 1),
+    APPROVED((short) 2),
+    REJECTED((short) 3),
+    CANCELED((short) 4);
+
+    private final short code;
+
+    public static Status fromCode(short code) {
+        for (Status status : values()) {
+            if (status.code == code) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный код статуса бронирования: " + code);
+    }
 }
@@ -0,0 +1,17 @@
+package ru.practicum.shareit.booking.model;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+@Converter
+public class StatusConverter implements AttributeConverter<Status, Short> {
+    @Override
+    public Short convertToDatabaseColumn(Status status) {
+        return status == null ? null : status.getCode();
+    }
+
+    @Override
+    public Status convertToEntityAttribute(Short code) {
+        return code == null ? null : Status.fromCode(code);
+    }
+}
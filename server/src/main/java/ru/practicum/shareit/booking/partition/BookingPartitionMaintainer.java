@@ -0,0 +1,58 @@
+package ru.practicum.shareit.booking.partition;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Заранее создаёт месячные секции bookings и, если включено, отправляет в схему archive секции,
+ * закончившиеся раньше archive-after. Функции секционирования объявлены в schema-postgresql.sql.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "shareit.booking.partitions", name = "enabled", havingValue = "true",
+        matchIfMissing = true)
+public class BookingPartitionMaintainer {
+    private final JdbcTemplate jdbcTemplate;
+    private final BookingPartitionProperties properties;
+    private final Counter createdCounter;
+    private final Counter archivedCounter;
+
+    public BookingPartitionMaintainer(JdbcTemplate jdbcTemplate, BookingPartitionProperties properties,
+                                      MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        this.createdCounter = Counter.builder("shareit.booking.partitions.created")
+                .description("Monthly bookings partitions created ahead of time")
+                .register(meterRegistry);
+        this.archivedCounter = Counter.builder("shareit.booking.partitions.archived")
+                .description("Bookings partitions detached into the archive schema")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.booking.partitions.interval:PT6H}")
+    public void maintainPartitions() {
+        LocalDate today = LocalDate.now();
+        Integer created = jdbcTemplate.queryForObject("SELECT bookings_create_partitions(?, ?)", Integer.class,
+                today, today.plus(properties.getAhead()));
+        if (created != null && created > 0) {
+            createdCounter.increment(created);
+            log.info("Создано секций bookings: {}", created);
+        }
+        if (!properties.isArchiveEnabled()) {
+            return;
+        }
+        Integer archived = jdbcTemplate.queryForObject("SELECT bookings_archive_partitions(?)", Integer.class,
+                today.minus(properties.getArchiveAfter()));
+        if (archived != null && archived > 0) {
+            archivedCounter.increment(archived);
+            log.info("Секций bookings перенесено в архив: {}", archived);
+        }
+    }
+}
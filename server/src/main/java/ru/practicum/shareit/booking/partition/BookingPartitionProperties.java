@@ -0,0 +1,21 @@
+package ru.practicum.shareit.booking.partition;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Period;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "shareit.booking.partitions")
+public class BookingPartitionProperties {
+    private boolean enabled = true;
+    private Period ahead = Period.ofMonths(12);
+    private boolean archiveEnabled = false;
+    private Period archiveAfter = Period.ofMonths(24);
+    private Duration interval = Duration.ofHours(6);
+}
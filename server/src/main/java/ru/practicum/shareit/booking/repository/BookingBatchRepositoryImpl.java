@@ -0,0 +1,44 @@
+package ru.practicum.shareit.booking.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.booking.model.Booking;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class BookingBatchRepositoryImpl implements BookingBatchRepository {
+    private static final String INSERT_BOOKING = "INSERT INTO bookings " +
+            "(start_date, end_date, item_id, booker_id, status, owner_id) VALUES (?, ?, ?, ?, ?, ?)";
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertAll(List<Booking> bookings) {
+        jdbcTemplate.execute(connection -> connection.prepareStatement(INSERT_BOOKING, new String[]{"id"}),
+                (PreparedStatement statement) -> {
+                    for (Booking booking : bookings) {
+                        statement.setTimestamp(1, Timestamp.valueOf(booking.getStart()));
+                        statement.setTimestamp(2, Timestamp.valueOf(booking.getEnd()));
+                        statement.setLong(3, booking.getItem().getId());
+                        statement.setLong(4, booking.getBooker().getId());
+                        statement.setShort(5, booking.getStatus().getCode());
+                        statement.setLong(6, booking.getOwnerId());
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                    try (ResultSet keys = statement.getGeneratedKeys()) {
+                        for (Booking booking : bookings) {
+                            if (!keys.next()) {
+                                throw new IncorrectResultSizeDataAccessException(bookings.size());
+                            }
+                            booking.setId(keys.getLong(1));
+                        }
+                    }
+                    return null;
+                });
+    }
+}
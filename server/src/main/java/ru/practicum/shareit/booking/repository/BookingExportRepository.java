@@ -0,0 +1,11 @@
+package ru.practicum.shareit.booking.repository;
+
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
+
+import java.util.stream.Stream;
+
+public interface BookingExportRepository {
+    Stream<BookingResponseDto> streamByBookerId(Long bookerId, int fetchSize);
+
+    Stream<BookingResponseDto> streamByOwnerId(Long ownerId, int fetchSize);
+}
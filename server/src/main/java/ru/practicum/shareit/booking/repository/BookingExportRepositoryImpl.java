@@ -0,0 +1,40 @@
+package ru.practicum.shareit.booking.repository;
+
+import org.hibernate.annotations.QueryHints;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.stream.Stream;
+
+import static ru.practicum.shareit.booking.repository.BookingRepository.ORDER_BY_CURSOR;
+import static ru.practicum.shareit.booking.repository.BookingRepository.SELECT_RESPONSE_DTO;
+
+public class BookingExportRepositoryImpl implements BookingExportRepository {
+    private static final String BY_BOOKER = SELECT_RESPONSE_DTO +
+            "WHERE u.id = :id " +
+            ORDER_BY_CURSOR;
+    private static final String BY_OWNER = SELECT_RESPONSE_DTO +
+            "WHERE b.ownerId = :id " +
+            ORDER_BY_CURSOR;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Stream<BookingResponseDto> streamByBookerId(Long bookerId, int fetchSize) {
+        return stream(BY_BOOKER, bookerId, fetchSize);
+    }
+
+    @Override
+    public Stream<BookingResponseDto> streamByOwnerId(Long ownerId, int fetchSize) {
+        return stream(BY_OWNER, ownerId, fetchSize);
+    }
+
+    private Stream<BookingResponseDto> stream(String query, Long id, int fetchSize) {
+        return entityManager.createQuery(query, BookingResponseDto.class)
+                .setParameter("id", id)
+                .setHint(QueryHints.FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.READ_ONLY, true)
+                .getResultStream();
+    }
+}
@@ -1,78 +1,166 @@
 package ru.practicum.shareit.booking.repository;
 
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import ru.practicum.shareit.booking.dto.BookingApprovalDto;
+import ru.practicum.shareit.booking.dto.BookingIntervalDto;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.dto.BookingSummaryDto;
+import ru.practicum.shareit.booking.dto.LastNextBookingView;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.Status;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface BookingRepository extends JpaRepository<Booking, Long> {
-    List<Booking> findByBookerIdOrderByStartDesc(Long userId, Pageable pageable);
-
-    List<Booking> findByBookerIdAndStatusOrderById(Long userId, Status status, Pageable pageable);
-
-    @Query("SELECT b FROM Booking AS b " +
-            "WHERE b.booker.id = :booker_id " +
+public interface BookingRepository extends JpaRepository<Booking, Long>, BookingBatchRepository,
+        BookingExportRepository {
+    String SKIP_LOCKED = "-2";
+    String SELECT_SUMMARY_DTO = "SELECT new ru.practicum.shareit.booking.dto.BookingSummaryDto(" +
+            "COUNT(b), " +
+            "COALESCE(SUM(CASE WHEN b.end < :time THEN 1 ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN b.start < :time AND b.end > :time THEN 1 ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN b.start > :time THEN 1 ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN b.status = ru.practicum.shareit.booking.model.Status.WAITING " +
+            "THEN 1 ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN b.status = ru.practicum.shareit.booking.model.Status.REJECTED " +
+            "THEN 1 ELSE 0 END), 0)) " +
+            "FROM Booking AS b ";
+    String AFTER_CURSOR = "AND (b.start < :cursor_start OR (b.start = :cursor_start AND b.id < :cursor_id)) ";
+    String ORDER_BY_CURSOR = "ORDER BY b.start DESC, b.id DESC";
+    String RANKED_LAST_NEXT_BOOKINGS = "SELECT b.id, b.item_id, b.booker_id, 'LAST' AS position, " +
+            "ROW_NUMBER() OVER (PARTITION BY b.item_id ORDER BY b.end_date DESC, b.id DESC) AS rn " +
+            "FROM bookings AS b " +
+            "WHERE b.item_id IN (:item_ids) " +
+            "AND b.status = :status " +
+            "AND b.end_date < :last_before " +
+            "UNION ALL " +
+            "SELECT b.id, b.item_id, b.booker_id, 'NEXT' AS position, " +
+            "ROW_NUMBER() OVER (PARTITION BY b.item_id ORDER BY b.start_date, b.id) AS rn " +
+            "FROM bookings AS b " +
+            "WHERE b.item_id IN (:item_ids) " +
+            "AND b.status = :status " +
+            "AND b.start_date > :next_after " +
+            "AND b.end_date > :next_after";
+    String SELECT_RESPONSE_DTO = "SELECT new ru.practicum.shareit.booking.dto.BookingResponseDto(" +
+            "b.id, b.start, b.end, b.status, i.id, i.name, u.id, u.name, u.email) " +
+            "FROM Booking AS b " +
+            "JOIN b.item AS i " +
+            "JOIN b.booker AS u ";
+
+    @Override
+    @EntityGraph(attributePaths = {"item", "booker"})
+    Optional<Booking> findById(Long id);
+
+    @Query(SELECT_RESPONSE_DTO +
+            "WHERE u.id = :booker_id " +
+            AFTER_CURSOR +
+            ORDER_BY_CURSOR)
+    List<BookingResponseDto> findByBookerId(@Param("booker_id") Long userId,
+                                            @Param("cursor_start") LocalDateTime cursorStart,
+                                            @Param("cursor_id") Long cursorId, Pageable pageable);
+
+    @Query(SELECT_RESPONSE_DTO +
+            "WHERE u.id = :booker_id " +
+            "AND b.status = :status " +
+            AFTER_CURSOR +
+            ORDER_BY_CURSOR)
+    List<BookingResponseDto> findByBookerIdAndStatus(@Param("booker_id") Long userId, @Param("status") Status status,
+                                                     @Param("cursor_start") LocalDateTime cursorStart,
+                                                     @Param("cursor_id") Long cursorId, Pageable pageable);
+
+    @Query(SELECT_RESPONSE_DTO +
+            "WHERE u.id = :booker_id " +
             "AND b.end < current_timestamp " +
-            "ORDER BY b.start DESC")
-    List<Booking> findPastBookings(@Param("booker_id") Long userId, Pageable pageable);
-
-    @Query("SELECT b FROM Booking AS b " +
-            "WHERE b.booker.id = :booker_id " +
+            AFTER_CURSOR +
+            ORDER_BY_CURSOR)
+    List<BookingResponseDto> findPastBookings(@Param("booker_id") Long userId,
+                                              @Param("cursor_start") LocalDateTime cursorStart,
+                                              @Param("cursor_id") Long cursorId, Pageable pageable);
+
+    @Query(SELECT_RESPONSE_DTO +
+            "WHERE u.id = :booker_id " +
             "AND b.start < current_timestamp " +
             "AND b.end > current_timestamp " +
-            "ORDER BY b.start DESC")
-    List<Booking> findCurrentBookings(@Param("booker_id") Long userId, Pageable pageable);
-
-    @Query("SELECT b FROM Booking AS b " +
-            "WHERE b.booker.id = :booker_id " +
+            AFTER_CURSOR +
+            ORDER_BY_CURSOR)
+    List<BookingResponseDto> findCurrentBookings(@Param("booker_id") Long userId,
+                                                 @Param("cursor_start") LocalDateTime cursorStart,
+                                                 @Param("cursor_id") Long cursorId, Pageable pageable);
+
+    @Query(SELECT_RESPONSE_DTO +
+            "WHERE u.id = :booker_id " +
             "AND b.start > current_timestamp " +
-            "ORDER BY b.start DESC")
-    List<Booking> findFutureBookings(@Param("booker_id") Long userId, Pageable pageable);
-
-    @Query("SELECT b from Booking AS b " +
-            "JOIN b.item AS i " +
-            "WHERE i.owner.id = :owner_id " +
-            "ORDER BY b.start DESC")
-    List<Booking> findByOwnerId(@Param("owner_id") Long userId, Pageable pageable);
-
-    @Query("SELECT b FROM Booking AS b " +
-            "JOIN b.item AS i " +
-            "WHERE i.owner.id = :owner_id " +
+            "AND b.end > current_timestamp " +
+            AFTER_CURSOR +
+            ORDER_BY_CURSOR)
+    List<BookingResponseDto> findFutureBookings(@Param("booker_id") Long userId,
+                                                @Param("cursor_start") LocalDateTime cursorStart,
+                                                @Param("cursor_id") Long cursorId, Pageable pageable);
+
+    @Query(SELECT_RESPONSE_DTO +
+            "WHERE b.ownerId = :owner_id " +
+            AFTER_CURSOR +
+            ORDER_BY_CURSOR)
+    List<BookingResponseDto> findByOwnerId(@Param("owner_id") Long userId,
+                                           @Param("cursor_start") LocalDateTime cursorStart,
+                                           @Param("cursor_id") Long cursorId, Pageable pageable);
+
+    @Query(SELECT_RESPONSE_DTO +
+            "WHERE b.ownerId = :owner_id " +
             "AND b.end < :time " +
-            "ORDER by b.start DESC")
-    List<Booking> findPastOwners(@Param("owner_id") Long userId, @Param("time") LocalDateTime time, Pageable pageable);
-
-    @Query("SELECT b FROM Booking AS b " +
-            "JOIN b.item AS i " +
-            "WHERE i.owner.id = :owner_id " +
+            AFTER_CURSOR +
+            ORDER_BY_CURSOR)
+    List<BookingResponseDto> findPastOwners(@Param("owner_id") Long userId, @Param("time") LocalDateTime time,
+                                            @Param("cursor_start") LocalDateTime cursorStart,
+                                            @Param("cursor_id") Long cursorId, Pageable pageable);
+
+    @Query(SELECT_RESPONSE_DTO +
+            "WHERE b.ownerId = :owner_id " +
             "AND b.end > :time " +
             "AND b.start < :time " +
-            "ORDER BY b.start DESC")
-    List<Booking> findCurrentOwners(@Param("owner_id") Long userId, @Param("time") LocalDateTime time,
-                                    Pageable pageable);
-
-    @Query("SELECT b FROM Booking AS b " +
-            "JOIN b.item AS i " +
-            "WHERE i.owner.id = :owner_id " +
+            AFTER_CURSOR +
+            ORDER_BY_CURSOR)
+    List<BookingResponseDto> findCurrentOwners(@Param("owner_id") Long userId, @Param("time") LocalDateTime time,
+                                               @Param("cursor_start") LocalDateTime cursorStart,
+                                               @Param("cursor_id") Long cursorId, Pageable pageable);
+
+    @Query(SELECT_RESPONSE_DTO +
+            "WHERE b.ownerId = :owner_id " +
             "AND b.start > :time " +
-            "ORDER BY b.start DESC")
-    List<Booking> findFutureOwners(@Param("owner_id") Long userId, @Param("time") LocalDateTime time,
-                                   Pageable pageable);
-
-    @Query("SELECT b FROM Booking AS b " +
-            "JOIN b.item AS i " +
-            "WHERE i.owner.id = :owner_id " +
+            "AND b.end > :time " +
+            AFTER_CURSOR +
+            ORDER_BY_CURSOR)
+    List<BookingResponseDto> findFutureOwners(@Param("owner_id") Long userId, @Param("time") LocalDateTime time,
+                                              @Param("cursor_start") LocalDateTime cursorStart,
+                                              @Param("cursor_id") Long cursorId, Pageable pageable);
+
+    @Query(SELECT_RESPONSE_DTO +
+            "WHERE b.ownerId = :owner_id " +
             "AND b.status = :status " +
-            "ORDER BY b.start DESC")
-    List<Booking> findOwnersAndStatusEquals(@Param("owner_id") Long userId, @Param("status") Status status,
-                                            Pageable pageable);
+            AFTER_CURSOR +
+            ORDER_BY_CURSOR)
+    List<BookingResponseDto> findOwnersAndStatusEquals(@Param("owner_id") Long userId, @Param("status") Status status,
+                                                       @Param("cursor_start") LocalDateTime cursorStart,
+                                                       @Param("cursor_id") Long cursorId, Pageable pageable);
+
+    @Query(SELECT_SUMMARY_DTO +
+            "WHERE b.booker.id = :booker_id")
+    BookingSummaryDto getBookerSummary(@Param("booker_id") Long userId, @Param("time") LocalDateTime time);
+
+    @Query(SELECT_SUMMARY_DTO +
+            "WHERE b.ownerId = :owner_id")
+    BookingSummaryDto getOwnerSummary(@Param("owner_id") Long ownerId, @Param("time") LocalDateTime time);
 
     @Query("SELECT b FROM Booking AS b " +
             "WHERE b.booker.id = :booker_id " +
@@ -80,13 +168,74 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
             "AND b.end < current_timestamp")
     List<Booking> findBookersAndItems(@Param("booker_id") Long userId, @Param("item_id") Long itemId);
 
-    Optional<Booking> findFirstByItemIdAndEndIsBeforeAndStatusIs(Long itemId, LocalDateTime time,
-                                                                 Status status, Sort sort);
-
-    Optional<Booking> findFirstByItemIdAndStartIsAfterAndStatusIs(Long itemId, LocalDateTime time,
-                                                                  Status status, Sort sort);
-
-    List<Booking> findFirstByItemIdInAndEndIsBeforeOrderByEndDesc(List<Long> itemIds, LocalDateTime time);
-
-    List<Booking> findFirstByItemIdInAndStartIsAfterOrderByStart(List<Long> itemIds, LocalDateTime time);
+    /*
+     * Для каждого item из списка: последнее завершившееся до last_before и ближайшее начинающееся после next_after
+     * booking с заданным статусом, по строке на каждое
+     */
+    @Query(value = "SELECT id, item_id AS itemId, booker_id AS bookerId, position " +
+            "FROM (" + RANKED_LAST_NEXT_BOOKINGS + ") AS ranked " +
+            "WHERE rn = 1", nativeQuery = true)
+    List<LastNextBookingView> findLastAndNextBookings(@Param("item_ids") Collection<Long> itemIds,
+                                                      @Param("status") short status,
+                                                      @Param("last_before") LocalDateTime lastBefore,
+                                                      @Param("next_after") LocalDateTime nextAfter);
+
+    @Query("SELECT new ru.practicum.shareit.booking.dto.BookingIntervalDto(b.id, b.item.id, b.start, b.end) " +
+            "FROM Booking AS b " +
+            "WHERE b.end > :time " +
+            "AND b.status IN :statuses")
+    List<BookingIntervalDto> findIntervalsByEndAfterAndStatusIn(@Param("time") LocalDateTime time,
+                                                                @Param("statuses") Collection<Status> statuses);
+
+    @Query("SELECT new ru.practicum.shareit.booking.dto.BookingIntervalDto(b.id, b.item.id, b.start, b.end) " +
+            "FROM Booking AS b " +
+            "WHERE b.item.id = :item_id " +
+            "AND b.end > :time " +
+            "AND b.status IN :statuses")
+    List<BookingIntervalDto> findItemIntervalsByEndAfter(@Param("item_id") Long itemId,
+                                                         @Param("time") LocalDateTime time,
+                                                         @Param("statuses") Collection<Status> statuses);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT new ru.practicum.shareit.booking.dto.BookingApprovalDto(b.id, b.ownerId, b.item.id, b.start, " +
+            "b.status) " +
+            "FROM Booking AS b " +
+            "WHERE b.id IN :ids")
+    List<BookingApprovalDto> findForApproval(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE Booking AS b " +
+            "SET b.status = :status, b.version = b.version + 1 " +
+            "WHERE b.id IN :ids")
+    int updateStatus(@Param("ids") Collection<Long> ids, @Param("status") Status status);
+
+    @Modifying
+    @Query("UPDATE Booking AS b " +
+            "SET b.status = :status, b.version = b.version + 1 " +
+            "WHERE b.id = :id " +
+            "AND b.version = :version " +
+            "AND b.status = ru.practicum.shareit.booking.model.Status.WAITING")
+    int updateWaitingStatus(@Param("id") Long id, @Param("version") Long version, @Param("status") Status status);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = SKIP_LOCKED))
+    @Query("SELECT new ru.practicum.shareit.booking.dto.BookingApprovalDto(b.id, b.ownerId, b.item.id, b.start, " +
+            "b.status) " +
+            "FROM Booking AS b " +
+            "WHERE b.status = :status " +
+            "AND b.start < :time " +
+            "ORDER BY b.id")
+    List<BookingApprovalDto> findStartedBeforeForUpdate(@Param("status") Status status,
+                                                        @Param("time") LocalDateTime time, Pageable pageable);
+
+    @Query("SELECT new ru.practicum.shareit.booking.dto.BookingIntervalDto(b.id, b.item.id, b.start, b.end) " +
+            "FROM Booking AS b " +
+            "WHERE b.item.id = :item_id " +
+            "AND b.status IN :statuses " +
+            "AND b.start < :to " +
+            "AND b.end > :from " +
+            "ORDER BY b.start")
+    List<BookingIntervalDto> findItemIntervals(@Param("item_id") Long itemId,
+                                               @Param("statuses") Collection<Status> statuses,
+                                               @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
 }
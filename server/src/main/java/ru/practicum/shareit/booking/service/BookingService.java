@@ -1,18 +1,44 @@
 package ru.practicum.shareit.booking.service;
 
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.booking.dto.BookingApproveRequestDto;
+import ru.practicum.shareit.booking.dto.BookingApproveResultDto;
 import ru.practicum.shareit.booking.dto.BookingRequestDto;
 import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.dto.BookingSummaryDto;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface BookingService {
     BookingResponseDto createBooking(BookingRequestDto bookingRequestDto, Long userId);
 
+    List<BookingResponseDto> createBookings(List<BookingRequestDto> bookingRequestDtos, Long userId);
+
     BookingResponseDto updateBooking(Long userId, Long bookingId, Boolean approved);
 
+    List<BookingApproveResultDto> approveBookings(Long userId, BookingApproveRequestDto bookingApproveRequestDto);
+
     BookingResponseDto getBookingById(Long userId, Long bookingId);
 
     List<BookingResponseDto> getAllBookingsByUserId(Long userId, String status, Integer from, Integer size);
 
+    List<BookingResponseDto> getAllBookingsByUserIdAfter(Long userId, String status, String after, Integer size);
+
     List<BookingResponseDto> getAllBookingsByOwnerId(Long ownerId, String status, Integer from, Integer size);
+
+    List<BookingResponseDto> getAllBookingsByOwnerIdAfter(Long ownerId, String status, String after, Integer size);
+
+    BookingSummaryDto getBookingSummaryByUserId(Long userId);
+
+    BookingSummaryDto getBookingSummaryByOwnerId(Long ownerId);
+
+    int expireWaitingBookings(LocalDateTime now, int limit);
+
+    SseEmitter subscribeToOwnerEvents(Long ownerId, Long lastEventId);
+
+    StreamingResponseBody exportBookingsByUserId(Long userId);
+
+    StreamingResponseBody exportBookingsByOwnerId(Long ownerId);
 }
@@ -3,26 +3,49 @@ package ru.practicum.shareit.booking.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.booking.dto.BookingApprovalDto;
+import ru.practicum.shareit.booking.dto.BookingApproveRequestDto;
+import ru.practicum.shareit.booking.dto.BookingApproveResultDto;
+import ru.practicum.shareit.booking.dto.BookingCursor;
+import ru.practicum.shareit.booking.dto.BookingIntervalDto;
 import ru.practicum.shareit.booking.dto.BookingRequestDto;
 import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.dto.BookingSummaryDto;
+import ru.practicum.shareit.booking.event.BookingEventDto;
+import ru.practicum.shareit.booking.event.BookingEventRegistry;
+import ru.practicum.shareit.booking.event.BookingEventType;
+import ru.practicum.shareit.booking.export.BookingExporter;
+import ru.practicum.shareit.booking.index.BookingIntervalIndex;
+import ru.practicum.shareit.booking.lock.ItemLockManager;
 import ru.practicum.shareit.booking.mapper.BookingMapper;
+import ru.practicum.shareit.booking.model.ApproveResult;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.State;
 import ru.practicum.shareit.booking.model.Status;
 import ru.practicum.shareit.booking.repository.BookingRepository;
 import ru.practicum.shareit.exception.BadRequestException;
+import ru.practicum.shareit.exception.ConflictException;
 import ru.practicum.shareit.exception.ObjectNotFoundException;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 import ru.practicum.shareit.utils.CustomPageRequest;
+import ru.practicum.shareit.utils.TransactionHooks;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -33,26 +56,32 @@ public class BookingServiceImpl implements BookingService {
     private final UserRepository userRepository;
     private final ItemRepository itemRepository;
     private final BookingRepository bookingRepository;
+    private final BookingIntervalIndex bookingIntervalIndex;
+    private final ItemLockManager itemLockManager;
+    private final BookingEventRegistry bookingEventRegistry;
+    private final BookingExporter bookingExporter;
+    private final TransactionTemplate transactionTemplate;
     private static final String USER_NOT_FOUND = "User с id: %d не найден";
     private static final String BOOKING_NOT_FOUND = "Booking с id: %d не найден";
 
+    /*
+     * Lock item берётся до начала транзакции: ожидающие его потоки не держат соединения с БД
+     */
     @Override
-    @Transactional
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public BookingResponseDto createBooking(BookingRequestDto bookingRequestDto, Long userId) {
-        User user = userRepository.findById(userId).orElseThrow(() ->
-                new ObjectNotFoundException(String.format(USER_NOT_FOUND, userId)));
-        checkBookingDate(bookingRequestDto);
-        Item item = itemRepository.findById(bookingRequestDto.getItemId()).orElseThrow(() ->
-                new ObjectNotFoundException(String.format("Item с id: %d не найден", bookingRequestDto.getItemId())));
-        checkUserIsNotOwnerItem(item, userId);
-        checkIsItemAvailable(item);
-        Booking booking = BookingMapper.requestToBooking(bookingRequestDto);
-        booking.setStatus(Status.WAITING);
-        booking.setBooker(user);
-        booking.setItem(item);
-        bookingRepository.save(booking);
-        log.info("User с id: {} создал Booking: {}", userId, booking);
-        return BookingMapper.toBookingResponseDto(booking);
+        try (ItemLockManager.StripeLock ignored = itemLockManager.lock(List.of(bookingRequestDto.getItemId()))) {
+            return transactionTemplate.execute(status -> saveBooking(bookingRequestDto, userId));
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<BookingResponseDto> createBookings(List<BookingRequestDto> bookingRequestDtos, Long userId) {
+        Set<Long> itemIds = bookingRequestDtos.stream().map(BookingRequestDto::getItemId).collect(Collectors.toSet());
+        try (ItemLockManager.StripeLock ignored = itemLockManager.lock(itemIds)) {
+            return transactionTemplate.execute(status -> saveBookings(bookingRequestDtos, itemIds, userId));
+        }
     }
 
     @Override
@@ -60,19 +89,71 @@ public class BookingServiceImpl implements BookingService {
     public BookingResponseDto updateBooking(Long userId, Long bookingId, Boolean approved) {
         Booking booking = bookingRepository.findById(bookingId).orElseThrow(() ->
                 new ObjectNotFoundException(String.format(BOOKING_NOT_FOUND, bookingId)));
-        checkUserExistsById(userId);
         Item item = booking.getItem();
-        if (checkUserIsOwner(userId, item)) {
+        if (!userId.equals(booking.getOwnerId())) {
+            checkUserExistsById(userId);
             throw new ObjectNotFoundException(String.format("User с id: %d не владелец item: %s", userId, item));
         }
-        if (booking.getStatus().equals(Status.APPROVED) || booking.getStatus().equals(Status.REJECTED)) {
+        if (booking.getStatus() != Status.WAITING) {
             throw new BadRequestException("Не позволено изменять Status");
         }
-        if (approved != null) {
-            booking.setStatus(approved ? Status.APPROVED : Status.REJECTED);
+        if (approved == null) {
+            throw new BadRequestException("Не передан параметр approved");
         }
-        booking = bookingRepository.save(booking);
-        return BookingMapper.toBookingResponseDto(booking);
+        Status status = approved ? Status.APPROVED : Status.REJECTED;
+        if (bookingRepository.updateWaitingStatus(bookingId, booking.getVersion(), status) == 0) {
+            throw new ConflictException(String.format("Booking с id: %d уже изменен другим запросом", bookingId));
+        }
+        if (status == Status.REJECTED) {
+            LocalDateTime start = booking.getStart();
+            TransactionHooks.afterCommit(() -> bookingIntervalIndex.remove(item.getId(), bookingId, start));
+        }
+        publishAfterCommit(booking.getOwnerId(), BookingEventType.BOOKING_STATUS_CHANGED, bookingId, item.getId(),
+                booking.getStart(), status);
+        BookingResponseDto bookingResponseDto = BookingMapper.toBookingResponseDto(booking);
+        bookingResponseDto.setStatus(status);
+        return bookingResponseDto;
+    }
+
+    @Override
+    @Transactional
+    public List<BookingApproveResultDto> approveBookings(Long userId,
+                                                         BookingApproveRequestDto bookingApproveRequestDto) {
+        checkUserExistsById(userId);
+        Set<Long> bookingIds = new LinkedHashSet<>(bookingApproveRequestDto.getBookingIds());
+        Map<Long, BookingApprovalDto> bookings = bookingRepository.findForApproval(bookingIds).stream()
+                .collect(Collectors.toMap(BookingApprovalDto::getId, Function.identity()));
+        Status status = bookingApproveRequestDto.getApproved() ? Status.APPROVED : Status.REJECTED;
+        List<BookingApprovalDto> approved = new ArrayList<>();
+        List<BookingApproveResultDto> results = new ArrayList<>();
+        for (Long bookingId : bookingIds) {
+            BookingApprovalDto booking = bookings.get(bookingId);
+            BookingApproveResultDto.BookingApproveResultDtoBuilder result = BookingApproveResultDto.builder()
+                    .bookingId(bookingId);
+            if (booking == null) {
+                result.result(ApproveResult.NOT_FOUND);
+            } else if (!userId.equals(booking.getOwnerId())) {
+                result.result(ApproveResult.NOT_OWNER);
+            } else if (booking.getStatus() != Status.WAITING) {
+                result.result(ApproveResult.ALREADY_PROCESSED).status(booking.getStatus());
+            } else {
+                result.result(ApproveResult.UPDATED).status(status);
+                approved.add(booking);
+            }
+            results.add(result.build());
+        }
+        if (!approved.isEmpty()) {
+            bookingRepository.updateStatus(approved.stream().map(BookingApprovalDto::getId)
+                    .collect(Collectors.toList()), status);
+            if (status == Status.REJECTED) {
+                TransactionHooks.afterCommit(() -> approved.forEach(booking ->
+                        bookingIntervalIndex.remove(booking.getItemId(), booking.getId(), booking.getStart())));
+            }
+            approved.forEach(booking -> publishAfterCommit(userId, BookingEventType.BOOKING_STATUS_CHANGED,
+                    booking.getId(), booking.getItemId(), booking.getStart(), status));
+        }
+        log.info("User с id: {} изменил Status на {} у {} booking", userId, status, approved.size());
+        return results;
     }
 
     @Override
@@ -91,73 +172,225 @@ public class BookingServiceImpl implements BookingService {
     @Override
     public List<BookingResponseDto> getAllBookingsByUserId(Long userId, String status, Integer from, Integer size) {
         checkUserExistsById(userId);
-        State state;
-        List<Booking> bookings;
-        Pageable pageable = new CustomPageRequest(from / size, size, Sort.by("start").descending());
-        try {
-            state = State.valueOf(status);
-        } catch (IllegalArgumentException e) {
-            throw new BadRequestException(String.format("Unknown state: %s", status));
+        State state = parseState(status);
+        Pageable pageable = new CustomPageRequest(from / size, size);
+        return findBookerBookings(userId, state, BookingCursor.FIRST, pageable);
+    }
+
+    @Override
+    public List<BookingResponseDto> getAllBookingsByUserIdAfter(Long userId, String status, String after,
+                                                                Integer size) {
+        checkUserExistsById(userId);
+        State state = parseState(status);
+        Pageable pageable = new CustomPageRequest(0, size);
+        return findBookerBookings(userId, state, BookingCursor.decode(after), pageable);
+    }
+
+    @Override
+    public List<BookingResponseDto> getAllBookingsByOwnerId(Long ownerId, String status, Integer from, Integer size) {
+        checkUserExistsById(ownerId);
+        State state = parseState(status);
+        Pageable pageable = new CustomPageRequest(from / size, size);
+        return findOwnerBookings(ownerId, state, BookingCursor.FIRST, pageable);
+    }
+
+    @Override
+    public List<BookingResponseDto> getAllBookingsByOwnerIdAfter(Long ownerId, String status, String after,
+                                                                 Integer size) {
+        checkUserExistsById(ownerId);
+        State state = parseState(status);
+        Pageable pageable = new CustomPageRequest(0, size);
+        return findOwnerBookings(ownerId, state, BookingCursor.decode(after), pageable);
+    }
+
+    @Override
+    public BookingSummaryDto getBookingSummaryByUserId(Long userId) {
+        checkUserExistsById(userId);
+        return bookingRepository.getBookerSummary(userId, LocalDateTime.now());
+    }
+
+    @Override
+    public BookingSummaryDto getBookingSummaryByOwnerId(Long ownerId) {
+        checkUserExistsById(ownerId);
+        return bookingRepository.getOwnerSummary(ownerId, LocalDateTime.now());
+    }
+
+    @Override
+    @Transactional
+    public int expireWaitingBookings(LocalDateTime now, int limit) {
+        List<BookingApprovalDto> expired = bookingRepository.findStartedBeforeForUpdate(Status.WAITING, now,
+                new CustomPageRequest(0, limit));
+        if (expired.isEmpty()) {
+            return 0;
         }
+        bookingRepository.updateStatus(expired.stream().map(BookingApprovalDto::getId).collect(Collectors.toList()),
+                Status.CANCELED);
+        TransactionHooks.afterCommit(() -> expired.forEach(booking ->
+                bookingIntervalIndex.remove(booking.getItemId(), booking.getId(), booking.getStart())));
+        expired.forEach(booking -> publishAfterCommit(booking.getOwnerId(), BookingEventType.BOOKING_STATUS_CHANGED,
+                booking.getId(), booking.getItemId(), booking.getStart(), Status.CANCELED));
+        return expired.size();
+    }
+
+    @Override
+    public SseEmitter subscribeToOwnerEvents(Long ownerId, Long lastEventId) {
+        checkUserExistsById(ownerId);
+        return bookingEventRegistry.subscribe(ownerId, lastEventId);
+    }
+
+    @Override
+    public StreamingResponseBody exportBookingsByUserId(Long userId) {
+        checkUserExistsById(userId);
+        return out -> {
+            long count = bookingExporter.exportByBookerId(userId, out);
+            log.info("Выгружено {} booking user с id: {}", count, userId);
+        };
+    }
+
+    @Override
+    public StreamingResponseBody exportBookingsByOwnerId(Long ownerId) {
+        checkUserExistsById(ownerId);
+        return out -> {
+            long count = bookingExporter.exportByOwnerId(ownerId, out);
+            log.info("Выгружено {} booking items owner с id: {}", count, ownerId);
+        };
+    }
+
+    private BookingResponseDto saveBooking(BookingRequestDto bookingRequestDto, Long userId) {
+        User user = userRepository.findById(userId).orElseThrow(() ->
+                new ObjectNotFoundException(String.format(USER_NOT_FOUND, userId)));
+        checkBookingDate(bookingRequestDto);
+        Item item = itemRepository.findById(bookingRequestDto.getItemId()).orElseThrow(() ->
+                new ObjectNotFoundException(String.format("Item с id: %d не найден", bookingRequestDto.getItemId())));
+        checkUserIsNotOwnerItem(item, userId);
+        checkIsItemAvailable(item);
+        checkBookingOverlap(item, bookingRequestDto);
+        Booking booking = BookingMapper.requestToBooking(bookingRequestDto);
+        booking.setStatus(Status.WAITING);
+        booking.setBooker(user);
+        booking.setItem(item);
+        booking.setOwnerId(item.getOwner().getId());
+        bookingRepository.save(booking);
+        TransactionHooks.afterCommit(() -> bookingIntervalIndex.add(item.getId(), booking.getId(),
+                booking.getStart(), booking.getEnd()));
+        publishAfterCommit(booking.getOwnerId(), BookingEventType.BOOKING_CREATED, booking.getId(), item.getId(),
+                booking.getStart(), booking.getStatus());
+        log.info("User с id: {} создал Booking: {}", userId, booking);
+        return BookingMapper.toBookingResponseDto(booking);
+    }
+
+    private List<BookingResponseDto> saveBookings(List<BookingRequestDto> bookingRequestDtos, Set<Long> itemIds,
+                                                  Long userId) {
+        User user = userRepository.findById(userId).orElseThrow(() ->
+                new ObjectNotFoundException(String.format(USER_NOT_FOUND, userId)));
+        bookingRequestDtos.forEach(this::checkBookingDate);
+        Map<Long, Item> items = itemRepository.findAllById(itemIds).stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+        List<Booking> bookings = new ArrayList<>();
+        for (BookingRequestDto bookingRequestDto : bookingRequestDtos) {
+            Item item = items.get(bookingRequestDto.getItemId());
+            if (item == null) {
+                throw new ObjectNotFoundException(String.format("Item с id: %d не найден",
+                        bookingRequestDto.getItemId()));
+            }
+            checkUserIsNotOwnerItem(item, userId);
+            checkIsItemAvailable(item);
+            checkBookingOverlap(item, bookingRequestDto);
+            checkBatchOverlap(bookings, item, bookingRequestDto);
+            Booking booking = BookingMapper.requestToBooking(bookingRequestDto);
+            booking.setStatus(Status.WAITING);
+            booking.setBooker(user);
+            booking.setItem(item);
+            booking.setOwnerId(item.getOwner().getId());
+            bookings.add(booking);
+        }
+        bookingRepository.insertAll(bookings);
+        TransactionHooks.afterCommit(() -> bookings.forEach(booking -> bookingIntervalIndex.add(
+                booking.getItem().getId(), booking.getId(), booking.getStart(), booking.getEnd())));
+        bookings.forEach(booking -> publishAfterCommit(booking.getOwnerId(), BookingEventType.BOOKING_CREATED,
+                booking.getId(), booking.getItem().getId(), booking.getStart(), booking.getStatus()));
+        log.info("User с id: {} создал {} Booking одним пакетом", userId, bookings.size());
+        return bookings.stream().map(BookingMapper::toBookingResponseDto).collect(Collectors.toList());
+    }
+
+    private List<BookingResponseDto> findBookerBookings(Long userId, State state, BookingCursor cursor,
+                                                        Pageable pageable) {
+        LocalDateTime start = cursor.getStart();
+        Long id = cursor.getId();
+        List<BookingResponseDto> bookings;
         switch (state) {
             case ALL:
-                bookings = bookingRepository.findByBookerIdOrderByStartDesc(userId, pageable);
+                bookings = bookingRepository.findByBookerId(userId, start, id, pageable);
                 break;
             case PAST:
-                bookings = bookingRepository.findPastBookings(userId, pageable);
+                bookings = bookingRepository.findPastBookings(userId, start, id, pageable);
                 break;
             case CURRENT:
-                bookings = bookingRepository.findCurrentBookings(userId, pageable);
+                bookings = bookingRepository.findCurrentBookings(userId, start, id, pageable);
                 break;
             case FUTURE:
-                bookings = bookingRepository.findFutureBookings(userId, pageable);
+                bookings = bookingRepository.findFutureBookings(userId, start, id, pageable);
                 break;
             case WAITING:
-                bookings = bookingRepository.findByBookerIdAndStatusOrderById(userId, Status.WAITING, pageable);
+                bookings = bookingRepository.findByBookerIdAndStatus(userId, Status.WAITING, start, id, pageable);
                 break;
             case REJECTED:
-                bookings = bookingRepository.findByBookerIdAndStatusOrderById(userId, Status.REJECTED, pageable);
+                bookings = bookingRepository.findByBookerIdAndStatus(userId, Status.REJECTED, start, id, pageable);
                 break;
             default:
-                throw new BadRequestException(String.format("Передан неизвестный статус: %s", status));
+                throw new BadRequestException(String.format("Передан неизвестный статус: %s", state));
         }
-        return bookings.stream().map(BookingMapper::toBookingResponseDto).collect(Collectors.toList());
+        return bookings;
     }
 
-    @Override
-    public List<BookingResponseDto> getAllBookingsByOwnerId(Long ownerId, String status, Integer from, Integer size) {
-        checkUserExistsById(ownerId);
-        State state;
-        List<Booking> bookings;
-        Pageable pageable = new CustomPageRequest(from / size, size, Sort.by("start").descending());
-        try {
-            state = State.valueOf(status);
-        } catch (IllegalArgumentException e) {
-            throw new BadRequestException(String.format("Unknown state: %s", status));
-        }
+    private List<BookingResponseDto> findOwnerBookings(Long ownerId, State state, BookingCursor cursor,
+                                                       Pageable pageable) {
+        LocalDateTime start = cursor.getStart();
+        Long id = cursor.getId();
+        List<BookingResponseDto> bookings;
         switch (state) {
             case ALL:
-                bookings = bookingRepository.findByOwnerId(ownerId, pageable);
+                bookings = bookingRepository.findByOwnerId(ownerId, start, id, pageable);
                 break;
             case PAST:
-                bookings = bookingRepository.findPastOwners(ownerId, LocalDateTime.now(), pageable);
+                bookings = bookingRepository.findPastOwners(ownerId, LocalDateTime.now(), start, id, pageable);
                 break;
             case CURRENT:
-                bookings = bookingRepository.findCurrentOwners(ownerId, LocalDateTime.now(), pageable);
+                bookings = bookingRepository.findCurrentOwners(ownerId, LocalDateTime.now(), start, id, pageable);
                 break;
             case FUTURE:
-                bookings = bookingRepository.findFutureOwners(ownerId, LocalDateTime.now(), pageable);
+                bookings = bookingRepository.findFutureOwners(ownerId, LocalDateTime.now(), start, id, pageable);
                 break;
             case WAITING:
-                bookings = bookingRepository.findOwnersAndStatusEquals(ownerId, Status.WAITING, pageable);
+                bookings = bookingRepository.findOwnersAndStatusEquals(ownerId, Status.WAITING, start, id, pageable);
                 break;
             case REJECTED:
-                bookings = bookingRepository.findOwnersAndStatusEquals(ownerId, Status.REJECTED, pageable);
+                bookings = bookingRepository.findOwnersAndStatusEquals(ownerId, Status.REJECTED, start, id, pageable);
                 break;
             default:
-                throw new BadRequestException(String.format("Передан неизвестный статус: %s", status));
+                throw new BadRequestException(String.format("Передан неизвестный статус: %s", state));
+        }
+        return bookings;
+    }
+
+    private State parseState(String status) {
+        try {
+            return State.valueOf(status);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(String.format("Unknown state: %s", status));
         }
-        return bookings.stream().map(BookingMapper::toBookingResponseDto).collect(Collectors.toList());
+    }
+
+    private void publishAfterCommit(Long ownerId, BookingEventType type, Long bookingId, Long itemId,
+                                    LocalDateTime start, Status status) {
+        BookingEventDto event = BookingEventDto.builder()
+                .type(type)
+                .bookingId(bookingId)
+                .itemId(itemId)
+                .start(start)
+                .status(status)
+                .build();
+        TransactionHooks.afterCommit(() -> bookingEventRegistry.publish(ownerId, event));
     }
 
     private void checkUserExistsById(Long id) {
@@ -178,6 +411,37 @@ public class BookingServiceImpl implements BookingService {
         }
     }
 
+    /*
+     * Пересечение из индекса проверяется по БД: booking мог быть отклонён или истечь на другом экземпляре сервера.
+     * Если в БД пересечения нет, интервалы item в индексе перечитываются
+     */
+    private void checkBookingOverlap(Item item, BookingRequestDto bookingRequestDto) {
+        if (bookingIntervalIndex.findOverlap(item.getId(), bookingRequestDto.getStart(),
+                bookingRequestDto.getEnd()).isEmpty()) {
+            return;
+        }
+        List<BookingIntervalDto> overlaps = bookingRepository.findItemIntervals(item.getId(),
+                BookingIntervalIndex.BLOCKING_STATUSES, bookingRequestDto.getStart(), bookingRequestDto.getEnd());
+        if (overlaps.isEmpty()) {
+            bookingIntervalIndex.reload(item.getId(), bookingRepository.findItemIntervalsByEndAfter(item.getId(),
+                    LocalDateTime.now(), BookingIntervalIndex.BLOCKING_STATUSES));
+            return;
+        }
+        throw new ConflictException(String.format("Item с id: %d уже забронирован на это время "
+                + "(booking с id: %d)", item.getId(), overlaps.get(0).getId()));
+    }
+
+    private void checkBatchOverlap(List<Booking> bookings, Item item, BookingRequestDto bookingRequestDto) {
+        for (Booking booking : bookings) {
+            if (booking.getItem().getId().equals(item.getId())
+                    && booking.getStart().isBefore(bookingRequestDto.getEnd())
+                    && bookingRequestDto.getStart().isBefore(booking.getEnd())) {
+                throw new ConflictException(String.format("Бронирования в пакете пересекаются для item с id: %d",
+                        item.getId()));
+            }
+        }
+    }
+
     private void checkUserIsNotOwnerItem(Item item, Long userId) {
         if (item.getOwner().getId().equals(userId)) {
             throw new ObjectNotFoundException("Арендатор не может быть owner");
@@ -189,8 +453,4 @@ public class BookingServiceImpl implements BookingService {
             throw new BadRequestException("Вещь недоступна для бронирования");
         }
     }
-
-    private boolean checkUserIsOwner(Long userId, Item item) {
-        return !userId.equals(item.getOwner().getId());
-    }
 }
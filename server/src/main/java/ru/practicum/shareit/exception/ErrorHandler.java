@@ -1,16 +1,23 @@
 package ru.practicum.shareit.exception;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.sql.SQLException;
+
 
 @RestControllerAdvice
 @Slf4j
 public class ErrorHandler {
+    /*
+     * exclusion_violation: пересечение периодов bookings одного item
+     */
+    private static final String EXCLUSION_VIOLATION = "23P01";
 
     @ExceptionHandler
     @ResponseStatus(HttpStatus.CONFLICT)
@@ -21,6 +28,23 @@ public class ErrorHandler {
         );
     }
 
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ErrorResponse handleConflictException(final ConflictException e) {
+        log.warn("Конфликтующий запрос 409 {}", e.getMessage(), e);
+        return new ErrorResponse(e.getMessage());
+    }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ErrorResponse handleDataIntegrityViolationException(final DataIntegrityViolationException e) {
+        log.warn("Нарушено ограничение целостности 409 {}", e.getMostSpecificCause().getMessage(), e);
+        if (EXCLUSION_VIOLATION.equals(sqlState(e))) {
+            return new ErrorResponse("Item уже забронирован на это время");
+        }
+        return new ErrorResponse("Нарушено ограничение целостности данных");
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public ErrorResponse handlerNotFoundException(final ObjectNotFoundException e) {
@@ -45,4 +69,13 @@ public class ErrorHandler {
         log.warn("Некорректный запрос 400 {}", e.getMessage(), e);
         return new ErrorResponse(e.getMessage());
     }
+
+    private static String sqlState(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException && ((SQLException) cause).getSQLState() != null) {
+                return ((SQLException) cause).getSQLState();
+            }
+        }
+        return null;
+    }
 }
@@ -2,13 +2,17 @@ package ru.practicum.shareit.item.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.item.dto.*;
+import ru.practicum.shareit.item.search.ItemSearchMode;
+import ru.practicum.shareit.item.search.ItemSearchSort;
 import ru.practicum.shareit.item.service.ItemService;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 import static ru.practicum.shareit.utils.Constants.HEADER;
@@ -57,11 +61,38 @@ public class ItemController {
     @GetMapping("/search")
     public ResponseEntity<List<ItemResponseDto>> searchItems(@RequestParam("text") String text,
                                                              @RequestHeader(HEADER) Long userId,
+                                                             @RequestParam(required = false) ItemSearchMode mode,
+                                                             @RequestParam(required = false) ItemSearchSort sort,
                                                              @RequestParam(defaultValue = "0") Integer from,
                                                              @RequestParam(defaultValue = "10") Integer size) {
         log.info("Получен GET запрос по эндпоинту '/items/search' от user c id {} на получение списка item " +
                 "по запросу {}", userId, text);
-        return ResponseEntity.ok(itemService.searchItemsDto(text, userId, from, size));
+        return ResponseEntity.ok(itemService.searchItemsDto(text, userId, mode, sort, from, size));
+    }
+
+    @PostMapping("/search/index")
+    public ResponseEntity<ItemSearchIndexStatsDto> rebuildSearchIndex() {
+        log.info("Получен POST запрос по эндпоинту '/items/search/index' на перестроение индекса поиска items");
+        return ResponseEntity.ok(itemService.rebuildSearchIndex());
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ItemSuggestionDto>> suggestItemNames(@RequestParam("prefix") String prefix,
+                                                                    @RequestParam(defaultValue = "10") Integer limit) {
+        log.info("Получен GET запрос по эндпоинту '/items/suggest' на подсказки названий items по префиксу {}",
+                prefix);
+        return ResponseEntity.ok(itemService.suggestItemNames(prefix, limit));
+    }
+
+    @GetMapping("/{id}/availability")
+    public ResponseEntity<ItemAvailabilityDto> getItemAvailability(
+            @PathVariable Long id,
+            @RequestHeader(HEADER) Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        log.info("Получен GET запрос по эндпоинту '/items/{}/availability' от user c id {} на получение свободных "
+                + "периодов item с {} по {}", id, userId, from, to);
+        return ResponseEntity.ok(itemService.getItemAvailability(id, userId, from, to));
     }
 
     @PostMapping("/{itemId}/comment")
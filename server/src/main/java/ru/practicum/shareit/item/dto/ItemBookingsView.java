@@ -0,0 +1,21 @@
+package ru.practicum.shareit.item.dto;
+
+public interface ItemBookingsView {
+    Long getId();
+
+    String getName();
+
+    String getDescription();
+
+    Boolean getAvailable();
+
+    Long getOwnerId();
+
+    Long getRequestId();
+
+    Long getBookingId();
+
+    Long getBookerId();
+
+    String getPosition();
+}
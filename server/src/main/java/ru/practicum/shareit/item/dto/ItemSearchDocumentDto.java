@@ -0,0 +1,16 @@
+package ru.practicum.shareit.item.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/*
+ * Поля доступного item, которых хватает для ответа поиска без обращения к БД
+ */
+@Getter
+@AllArgsConstructor
+public class ItemSearchDocumentDto {
+    private final Long id;
+    private final String name;
+    private final String description;
+    private final Long requestId;
+}
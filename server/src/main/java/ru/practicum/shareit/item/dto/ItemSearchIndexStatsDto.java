@@ -0,0 +1,18 @@
+package ru.practicum.shareit.item.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ItemSearchIndexStatsDto {
+    private Integer items;
+    private Integer grams;
+    private Long postings;
+    private Long estimatedBytes;
+    private Long buildMillis;
+}
@@ -0,0 +1,16 @@
+package ru.practicum.shareit.item.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * Подсказка автодополнения: название и число доступных items с ним
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ItemSuggestionDto {
+    private String name;
+    private Integer items;
+}
@@ -1,11 +1,15 @@
 package ru.practicum.shareit.item.mapper;
 
 import lombok.experimental.UtilityClass;
+import ru.practicum.shareit.booking.dto.BookingShortResponseDto;
+import ru.practicum.shareit.booking.dto.LastNextBookingView;
 import ru.practicum.shareit.booking.mapper.BookingMapper;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.item.dto.ItemBookingsView;
 import ru.practicum.shareit.item.dto.ItemFullResponseDto;
 import ru.practicum.shareit.item.dto.ItemRequestDto;
 import ru.practicum.shareit.item.dto.ItemResponseDto;
+import ru.practicum.shareit.item.dto.ItemSearchDocumentDto;
 import ru.practicum.shareit.item.dto.ItemShortResponseDto;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
@@ -29,6 +33,26 @@ public class ItemMapper {
                 .build();
     }
 
+    public ItemResponseDto documentToDto(ItemSearchDocumentDto document) {
+        return ItemResponseDto.builder()
+                .id(document.getId())
+                .name(document.getName())
+                .description(document.getDescription())
+                .available(true)
+                .requestId(document.getRequestId())
+                .build();
+    }
+
+    /*
+     * Документ поиска доступного item; для недоступного null - его не находит ни один запрос
+     */
+    public ItemSearchDocumentDto availableItemToDocument(Item item) {
+        if (!Boolean.TRUE.equals(item.getAvailable())) {
+            return null;
+        }
+        return new ItemSearchDocumentDto(item.getId(), item.getName(), item.getDescription(), item.getRequestId());
+    }
+
     public ItemShortResponseDto itemToShort(Item item) {
         return ItemShortResponseDto.builder()
                 .id(item.getId())
@@ -55,9 +79,42 @@ public class ItemMapper {
 
     public ItemFullResponseDto toItemResponseDto(Item item, Booking lastBooking, Booking nextBooking,
                                                  List<Comment> comments) {
+        return toItemFullResponseDto(item, BookingMapper.bookingToDtoId(lastBooking),
+                BookingMapper.bookingToDtoId(nextBooking), comments);
+    }
+
+    public ItemFullResponseDto toItemFullResponseDto(Item item, BookingShortResponseDto lastBooking,
+                                                     BookingShortResponseDto nextBooking, List<Comment> comments) {
+        return ItemFullResponseDto.builder()
+                .nextBooking(nextBooking)
+                .lastBooking(lastBooking)
+                .name(item.getName())
+                .id(item.getId())
+                .description(item.getDescription())
+                .available(item.getAvailable())
+                .requestId(item.getRequestId())
+                .comments(CommentMapper.listCommentsToListResponse(comments))
+                .build();
+    }
+
+    public ItemFullResponseDto toItemFullResponseDto(List<ItemBookingsView> rows, List<Comment> comments) {
+        ItemBookingsView item = rows.get(0);
+        BookingShortResponseDto lastBooking = null;
+        BookingShortResponseDto nextBooking = null;
+        for (ItemBookingsView row : rows) {
+            if (row.getBookingId() == null) {
+                continue;
+            }
+            BookingShortResponseDto booking = new BookingShortResponseDto(row.getBookingId(), row.getBookerId());
+            if (LastNextBookingView.LAST.equals(row.getPosition())) {
+                lastBooking = booking;
+            } else {
+                nextBooking = booking;
+            }
+        }
         return ItemFullResponseDto.builder()
-                .nextBooking(BookingMapper.bookingToDtoId(nextBooking))
-                .lastBooking(BookingMapper.bookingToDtoId(lastBooking))
+                .nextBooking(nextBooking)
+                .lastBooking(lastBooking)
                 .name(item.getName())
                 .id(item.getId())
                 .description(item.getDescription())
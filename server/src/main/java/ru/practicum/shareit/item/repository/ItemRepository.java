@@ -3,20 +3,108 @@ package ru.practicum.shareit.item.repository;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.item.dto.ItemBookingsView;
+import ru.practicum.shareit.item.dto.ItemSearchDocumentDto;
 import ru.practicum.shareit.item.model.Item;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface ItemRepository extends JpaRepository<Item, Long> {
     List<Item> findAllByOwnerId(Long ownerId, Pageable pageable);
 
+    /*
+     * Item вместе с последним и следующим booking; booking присоединяются, только если user_id владелец item
+     */
+    @Query(value = "SELECT i.id, i.name, i.description, i.is_available AS available, i.owner_id AS ownerId, " +
+            "i.request_id AS requestId, lnb.id AS bookingId, lnb.booker_id AS bookerId, lnb.position " +
+            "FROM items AS i " +
+            "LEFT JOIN (" + BookingRepository.RANKED_LAST_NEXT_BOOKINGS + ") AS lnb " +
+            "ON lnb.item_id = i.id AND lnb.rn = 1 AND i.owner_id = :user_id " +
+            "WHERE i.id IN (:item_ids)", nativeQuery = true)
+    List<ItemBookingsView> findItemsWithLastAndNextBookings(@Param("item_ids") Collection<Long> itemIds,
+                                                            @Param("user_id") Long userId,
+                                                            @Param("status") short status,
+                                                            @Param("last_before") LocalDateTime lastBefore,
+                                                            @Param("next_after") LocalDateTime nextAfter);
+
     @Query("SELECT it FROM Item AS it " +
             "WHERE it.available = TRUE AND " +
             "(UPPER(it.name) LIKE UPPER(CONCAT('%', :text,'%')) " +
             "OR UPPER(it.description) LIKE UPPER(CONCAT('%', :text,'%')))")
     List<Item> getAvailableItemByText(@Param("text") String text, Pageable pageable);
 
+    @Query(value = "SELECT i.id, i.name, i.description, i.is_available, i.owner_id, i.request_id " +
+            "FROM items AS i " +
+            "WHERE i.is_available " +
+            "AND i.search_vector @@ plainto_tsquery('russian', :text) " +
+            "ORDER BY i.id", nativeQuery = true)
+    List<Item> getAvailableItemByTsQuery(@Param("text") String text, Pageable pageable);
+
+    @Query(value = "SELECT i.id, i.name, i.description, i.is_available, i.owner_id, i.request_id " +
+            "FROM items AS i " +
+            "WHERE i.is_available " +
+            "AND i.search_vector @@ plainto_tsquery('russian', :text) " +
+            "ORDER BY ts_rank_cd(i.search_vector, plainto_tsquery('russian', :text)) DESC, i.id", nativeQuery = true)
+    List<Item> getAvailableItemByTsQueryRanked(@Param("text") String text, Pageable pageable);
+
+    /*
+     * Та же подстрока, что и в getAvailableItemByText, но LIKE по lower() обслуживают триграммные индексы.
+     * Порядок по сходству приблизительный: совпадения в порядке id делятся на блоки по candidates, и по сходству
+     * упорядочивается каждый блок отдельно. Поэтому частый фрагмент не заставляет считать word_similarity для
+     * каждого найденного item, а страницы не пропускают и не повторяют items. При числе совпадений не больше
+     * candidates порядок точный. matches - сколько первых по id совпадений нужно для страницы, целыми блоками.
+     * id + 0 не даёт планировщику искать совпадения обходом первичного ключа, долгим для редкого фрагмента
+     */
+    @Query(value = "SELECT c.id, c.name, c.description, c.is_available, c.owner_id, c.request_id " +
+            "FROM (SELECT m.*, (row_number() OVER (ORDER BY m.id) - 1) / :candidates AS block " +
+            "FROM (SELECT i.id, i.name, i.description, i.is_available, i.owner_id, i.request_id " +
+            "FROM items AS i " +
+            "WHERE i.is_available " +
+            "AND (lower(i.name) LIKE '%' || lower(:text) || '%' " +
+            "OR lower(i.description) LIKE '%' || lower(:text) || '%') " +
+            "ORDER BY i.id + 0 " +
+            "LIMIT :matches) AS m) AS c " +
+            "ORDER BY c.block, GREATEST(word_similarity(lower(:text), lower(c.name)), " +
+            "word_similarity(lower(:text), lower(c.description))) DESC, c.id", nativeQuery = true)
+    List<Item> getAvailableItemBySimilarity(@Param("text") String text, @Param("candidates") int candidates,
+                                            @Param("matches") int matches, Pageable pageable);
+
+    @Query("SELECT new ru.practicum.shareit.item.dto.ItemSearchDocumentDto(it.id, it.name, it.description, " +
+            "it.requestId) " +
+            "FROM Item AS it " +
+            "WHERE it.available = TRUE")
+    List<ItemSearchDocumentDto> findAvailableSearchDocuments();
+
+    @Query("SELECT new ru.practicum.shareit.item.dto.ItemSearchDocumentDto(it.id, it.name, it.description, " +
+            "it.requestId) " +
+            "FROM Item AS it " +
+            "WHERE it.owner.id = :owner_id AND it.available = TRUE")
+    List<ItemSearchDocumentDto> findAvailableSearchDocumentsByOwnerId(@Param("owner_id") Long ownerId);
+
+    @Query("SELECT it.name FROM Item AS it WHERE it.available = TRUE")
+    List<String> findAvailableNames();
+
+    /*
+     * Все совпадения getAvailableItemByText без страниц; на PostgreSQL lower() обслуживают триграммные индексы.
+     * Строки читаются порциями по fetch size, поэтому поток нужно закрыть, а читать - внутри транзакции
+     */
+    @Query("SELECT new ru.practicum.shareit.item.dto.ItemSearchDocumentDto(it.id, it.name, it.description, " +
+            "it.requestId) " +
+            "FROM Item AS it " +
+            "WHERE it.available = TRUE AND " +
+            "(LOWER(it.name) LIKE LOWER(CONCAT('%', :text,'%')) " +
+            "OR LOWER(it.description) LIKE LOWER(CONCAT('%', :text,'%')))")
+    @QueryHints({@QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")})
+    Stream<ItemSearchDocumentDto> streamAvailableSearchDocumentsByText(@Param("text") String text);
+
     List<Item> findAllByRequestId(Long requestId);
 
     List<Item> findByRequestIdIn(List<Long> requestIds);
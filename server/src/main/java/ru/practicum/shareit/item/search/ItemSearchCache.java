@@ -0,0 +1,122 @@
+package ru.practicum.shareit.item.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.dto.ItemResponseDto;
+import ru.practicum.shareit.item.dto.ItemSearchDocumentDto;
+import ru.practicum.shareit.item.mapper.ItemMapper;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.utils.TransactionHooks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Кэш страниц поиска items по тексту без учёта регистра, режиму, сортировке и странице. Вытеснение
+ * W-TinyLFU (Caffeine) по размеру и времени жизни. После коммита изменения name, description или available
+ * удаляются только записи, которые могли найти item до или после изменения. Поиск, начатый до такой очистки,
+ * свой результат в кэше не оставляет. Метрики hit/miss/eviction - cache.* с тегом cache=itemSearch.
+ */
+@Component
+public class ItemSearchCache {
+    private final Cache<Key, List<ItemResponseDto>> cache;
+    private final AtomicLong invalidations = new AtomicLong();
+    private final Counter invalidated;
+
+    public ItemSearchCache(ItemSearchProperties properties, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheSize())
+                .expireAfterWrite(properties.getCacheTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "itemSearch");
+        this.invalidated = Counter.builder("shareit.item.search.cache.invalidated")
+                .description("Item search cache entries removed after item changes")
+                .register(meterRegistry);
+    }
+
+    public List<ItemResponseDto> get(String text, ItemSearchMode mode, ItemSearchSort sort, int from, int size,
+                                     Supplier<List<ItemResponseDto>> search) {
+        Key key = new Key(TrigramIndex.normalize(text), mode, sort, from, size);
+        List<ItemResponseDto> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        long started = invalidations.get();
+        List<ItemResponseDto> found = search.get();
+        cache.put(key, found);
+        if (invalidations.get() != started) {
+            cache.invalidate(key);
+        }
+        return found;
+    }
+
+    /*
+     * before - документ item до изменения, null для нового или недоступного item
+     */
+    public void invalidate(ItemSearchDocumentDto before, Item item) {
+        ItemSearchDocumentDto after = ItemMapper.availableItemToDocument(item);
+        if (sameSearchFields(before, after)) {
+            return;
+        }
+        List<ItemSearchMatcher> matchers = new ArrayList<>();
+        for (ItemSearchDocumentDto document : new ItemSearchDocumentDto[]{before, after}) {
+            if (document != null) {
+                matchers.add(new ItemSearchMatcher(document));
+            }
+        }
+        invalidateAfterCommit(matchers);
+    }
+
+    /*
+     * Для items, которые БД удаляет каскадом вместе с owner: документы берутся до удаления
+     */
+    public void invalidateAll(Collection<ItemSearchDocumentDto> removed) {
+        if (removed.isEmpty()) {
+            return;
+        }
+        invalidateAfterCommit(removed.stream().map(ItemSearchMatcher::new).collect(Collectors.toList()));
+    }
+
+    private void invalidateAfterCommit(List<ItemSearchMatcher> matchers) {
+        TransactionHooks.afterCommit(() -> {
+            invalidations.incrementAndGet();
+            cache.asMap().keySet().removeIf(key -> {
+                boolean affected = matchers.stream().anyMatch(matcher -> matcher.mayMatch(key.mode, key.text));
+                if (affected) {
+                    invalidated.increment();
+                }
+                return affected;
+            });
+        });
+    }
+
+    private static boolean sameSearchFields(ItemSearchDocumentDto before, ItemSearchDocumentDto after) {
+        if (before == null || after == null) {
+            return before == after;
+        }
+        return Objects.equals(before.getName(), after.getName())
+                && Objects.equals(before.getDescription(), after.getDescription());
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static class Key {
+        private final String text;
+        private final ItemSearchMode mode;
+        private final ItemSearchSort sort;
+        private final int from;
+        private final int size;
+    }
+}
@@ -0,0 +1,180 @@
+package ru.practicum.shareit.item.search;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.exception.BadRequestException;
+import ru.practicum.shareit.item.dto.ItemSearchDocumentDto;
+import ru.practicum.shareit.item.dto.ItemSearchIndexStatsDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.utils.TransactionHooks;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Триграммный индекс доступных items в памяти процесса для поиска в режиме INDEX.
+ * Загружается при старте, изменения items применяются после коммита. Перестроение читает items из БД
+ * без блокировки поиска, а изменения, пришедшие за это время, повторяются на новом индексе перед заменой.
+ */
+@Slf4j
+@Component
+public class ItemSearchIndex {
+    private final ItemRepository itemRepository;
+    private final ItemSearchProperties properties;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object rebuildMonitor = new Object();
+    private TrigramIndex index = new TrigramIndex();
+    private List<Consumer<TrigramIndex>> changesDuringRebuild;
+
+    public ItemSearchIndex(ItemRepository itemRepository, ItemSearchProperties properties,
+                           MeterRegistry meterRegistry) {
+        this.itemRepository = itemRepository;
+        this.properties = properties;
+        gauge(meterRegistry, "shareit.item.search.index.items", "Items in the in-memory search index",
+                search -> search.read(TrigramIndex::size));
+        gauge(meterRegistry, "shareit.item.search.index.grams", "Distinct trigrams in the in-memory search index",
+                search -> search.read(TrigramIndex::gramCount));
+        gauge(meterRegistry, "shareit.item.search.index.postings", "Item ids in all trigram posting lists",
+                search -> search.read(TrigramIndex::postingCount));
+        gauge(meterRegistry, "shareit.item.search.index.bytes", "Estimated heap used by the in-memory search index",
+                search -> search.read(TrigramIndex::estimatedBytes));
+    }
+
+    @PostConstruct
+    public void load() {
+        if (properties.isIndexEnabled()) {
+            rebuild();
+        }
+    }
+
+    public ItemSearchIndexStatsDto rebuild() {
+        checkEnabled();
+        synchronized (rebuildMonitor) {
+            long started = System.currentTimeMillis();
+            write(current -> changesDuringRebuild = new ArrayList<>());
+            TrigramIndex rebuilt = new TrigramIndex();
+            try {
+                itemRepository.findAvailableSearchDocuments().forEach(rebuilt::add);
+            } catch (RuntimeException e) {
+                write(current -> changesDuringRebuild = null);
+                throw e;
+            }
+            write(current -> {
+                changesDuringRebuild.forEach(change -> change.accept(rebuilt));
+                changesDuringRebuild = null;
+                rebuilt.compact();
+                index = rebuilt;
+            });
+            ItemSearchIndexStatsDto stats = stats(System.currentTimeMillis() - started);
+            log.info("Индекс поиска items построен: {} items, {} триграмм, ~{} байт за {} мс", stats.getItems(),
+                    stats.getGrams(), stats.getEstimatedBytes(), stats.getBuildMillis());
+            return stats;
+        }
+    }
+
+    public List<ItemSearchDocumentDto> search(String text, int from, int size) {
+        checkEnabled();
+        return read(current -> current.search(text, from, size));
+    }
+
+    public List<ItemSearchDocumentDto> searchByRelevance(String text, int from, int size) {
+        checkEnabled();
+        return read(current -> {
+            RelevanceRanking.TopK topK = RelevanceRanking.topK(text, from, size);
+            current.forEachMatch(text, document -> {
+                topK.offer(document);
+                return true;
+            });
+            return topK.page();
+        });
+    }
+
+    /*
+     * Добавляет, заменяет или убирает item по его доступности после коммита текущей транзакции
+     */
+    public void update(Item item) {
+        if (!properties.isIndexEnabled()) {
+            return;
+        }
+        ItemSearchDocumentDto document = new ItemSearchDocumentDto(item.getId(), item.getName(),
+                item.getDescription(), item.getRequestId());
+        boolean available = Boolean.TRUE.equals(item.getAvailable());
+        TransactionHooks.afterCommit(() -> apply(current -> {
+            if (available) {
+                current.add(document);
+            } else {
+                current.remove(document.getId());
+            }
+        }));
+    }
+
+    /*
+     * Убирает items после коммита текущей транзакции: их удаляет БД каскадом вместе с owner
+     */
+    public void removeByIds(Collection<Long> ids) {
+        if (!properties.isIndexEnabled() || ids.isEmpty()) {
+            return;
+        }
+        TransactionHooks.afterCommit(() -> apply(current -> ids.forEach(current::remove)));
+    }
+
+    private void apply(Consumer<TrigramIndex> change) {
+        write(current -> {
+            change.accept(current);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(change);
+            }
+        });
+    }
+
+    private ItemSearchIndexStatsDto stats(long buildMillis) {
+        return read(current -> ItemSearchIndexStatsDto.builder()
+                .items(current.size())
+                .grams(current.gramCount())
+                .postings(current.postingCount())
+                .estimatedBytes(current.estimatedBytes())
+                .buildMillis(buildMillis)
+                .build());
+    }
+
+    private void checkEnabled() {
+        if (!properties.isIndexEnabled()) {
+            throw new BadRequestException("Поиск по индексу в памяти отключен");
+        }
+    }
+
+    private <T> T read(Function<TrigramIndex, T> action) {
+        lock.readLock().lock();
+        try {
+            return action.apply(index);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void write(Consumer<TrigramIndex> action) {
+        lock.writeLock().lock();
+        try {
+            action.accept(index);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void gauge(MeterRegistry meterRegistry, String name, String description,
+                       ToDoubleFunction<ItemSearchIndex> value) {
+        Gauge.builder(name, this, value)
+                .description(description)
+                .register(meterRegistry);
+    }
+}
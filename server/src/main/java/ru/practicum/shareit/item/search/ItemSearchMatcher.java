@@ -0,0 +1,66 @@
+package ru.practicum.shareit.item.search;
+
+import ru.practicum.shareit.item.dto.ItemSearchDocumentDto;
+
+import java.util.regex.Pattern;
+
+/**
+ * Проверка в памяти, может ли запрос найти документ, для точечной очистки кэша поиска. Лишний true допустим,
+ * ложный false - нет. LIKE, TRGM и INDEX ищут подстроку без учёта регистра, текст с символами шаблона LIKE
+ * считается совпадающим всегда. Стеммер FTS оставляет от слова как минимум всё до первой гласной включительно,
+ * поэтому документ может совпасть, только если одно из его слов начинается с такого начала какого-либо
+ * слова запроса; стоп-слова запроса на это не влияют.
+ */
+public class ItemSearchMatcher {
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final String VOWELS = "аеиоуыэюяaeiouy";
+    private final String name;
+    private final String description;
+    private final String[] words;
+
+    public ItemSearchMatcher(ItemSearchDocumentDto document) {
+        this.name = TrigramIndex.normalize(document.getName());
+        this.description = TrigramIndex.normalize(document.getDescription());
+        this.words = words(name + " " + description);
+    }
+
+    public boolean mayMatch(ItemSearchMode mode, String text) {
+        String normalizedText = TrigramIndex.normalize(text);
+        if (mode == ItemSearchMode.FTS) {
+            return mayMatchWords(normalizedText);
+        }
+        if (normalizedText.indexOf('%') >= 0 || normalizedText.indexOf('_') >= 0
+                || normalizedText.indexOf('\\') >= 0) {
+            return true;
+        }
+        return name.contains(normalizedText) || description.contains(normalizedText);
+    }
+
+    private boolean mayMatchWords(String normalizedText) {
+        for (String term : words(normalizedText)) {
+            if (term.isEmpty()) {
+                continue;
+            }
+            String stemStart = stemStart(term);
+            for (String word : words) {
+                if (word.startsWith(stemStart)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String[] words(String normalizedText) {
+        return NON_WORD.split(normalizedText.replace('ё', 'е'));
+    }
+
+    private static String stemStart(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (VOWELS.indexOf(word.charAt(i)) >= 0) {
+                return word.substring(0, i + 1);
+            }
+        }
+        return word;
+    }
+}
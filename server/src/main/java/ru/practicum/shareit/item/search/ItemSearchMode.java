@@ -0,0 +1,20 @@
+package ru.practicum.shareit.item.search;
+
+public enum ItemSearchMode {
+    /*
+     * Подстрока в name или description через LIKE, работает на любой БД
+     */
+    LIKE,
+    /*
+     * Полнотекстовый поиск PostgreSQL по items.search_vector
+     */
+    FTS,
+    /*
+     * Подстрока через триграммные индексы pg_trgm, результаты по убыванию сходства с запросом
+     */
+    TRGM,
+    /*
+     * Подстрока по триграммному индексу в памяти процесса (ItemSearchIndex), без запросов к БД
+     */
+    INDEX
+}
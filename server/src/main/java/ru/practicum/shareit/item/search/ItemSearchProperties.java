@@ -0,0 +1,28 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "shareit.item.search")
+public class ItemSearchProperties {
+    private ItemSearchMode mode = ItemSearchMode.LIKE;
+    private boolean indexEnabled = false;
+    /*
+     * Размер блока совпадений режима trgm в порядке id, внутри которого items упорядочиваются по сходству
+     */
+    private int trgmCandidates = 1000;
+    /*
+     * Наибольшее число подсказок автодополнения, столько лучших названий хранит каждый узел дерева
+     */
+    private int suggestLimit = 10;
+    private boolean cacheEnabled = true;
+    private long cacheSize = 10_000;
+    private Duration cacheTtl = Duration.ofMinutes(5);
+}
@@ -0,0 +1,12 @@
+package ru.practicum.shareit.item.search;
+
+public enum ItemSearchSort {
+    /*
+     * Порядок, который даёт режим поиска
+     */
+    NONE,
+    /*
+     * По убыванию релевантности (RelevanceRanking, для FTS - ts_rank_cd)
+     */
+    RELEVANCE
+}
@@ -0,0 +1,110 @@
+package ru.practicum.shareit.item.search;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.dto.ItemSearchDocumentDto;
+import ru.practicum.shareit.item.dto.ItemSuggestionDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.utils.TransactionHooks;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Названия доступных items в памяти процесса для автодополнения. Загружается при старте,
+ * до приёма запросов, дальше изменения items применяются после коммита, так что подсказки не обращаются к БД.
+ */
+@Slf4j
+@Component
+public class ItemSuggestIndex {
+    private final ItemRepository itemRepository;
+    private final ItemSearchProperties properties;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private NameTrie trie;
+
+    public ItemSuggestIndex(ItemRepository itemRepository, ItemSearchProperties properties,
+                            MeterRegistry meterRegistry) {
+        this.itemRepository = itemRepository;
+        this.properties = properties;
+        this.trie = new NameTrie(properties.getSuggestLimit());
+        Gauge.builder("shareit.item.suggest.names", this, suggest -> suggest.read(NameTrie::size))
+                .description("Distinct item names in the autocomplete trie")
+                .register(meterRegistry);
+        Gauge.builder("shareit.item.suggest.nodes", this, suggest -> suggest.read(NameTrie::nodeCount))
+                .description("Nodes in the autocomplete trie")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void load() {
+        long started = System.currentTimeMillis();
+        NameTrie loaded = new NameTrie(properties.getSuggestLimit());
+        itemRepository.findAvailableNames().forEach(loaded::add);
+        write(current -> trie = loaded);
+        log.info("Дерево автодополнения построено: {} названий, {} узлов за {} мс", loaded.size(),
+                loaded.nodeCount(), System.currentTimeMillis() - started);
+    }
+
+    public List<ItemSuggestionDto> suggest(String prefix, int limit) {
+        int bounded = Math.min(limit, properties.getSuggestLimit());
+        return read(current -> current.suggest(prefix, bounded));
+    }
+
+    /*
+     * Переносит название item после коммита текущей транзакции. before - документ item до изменения,
+     * null для нового или недоступного item
+     */
+    public void update(ItemSearchDocumentDto before, Item item) {
+        String removed = before == null ? null : before.getName();
+        String added = Boolean.TRUE.equals(item.getAvailable()) ? item.getName() : null;
+        if (Objects.equals(removed, added)) {
+            return;
+        }
+        TransactionHooks.afterCommit(() -> write(current -> {
+            if (removed != null) {
+                current.remove(removed);
+            }
+            if (added != null) {
+                current.add(added);
+            }
+        }));
+    }
+
+    /*
+     * Убирает названия items после коммита текущей транзакции: их удаляет БД каскадом вместе с owner
+     */
+    public void removeAll(Collection<ItemSearchDocumentDto> documents) {
+        if (documents.isEmpty()) {
+            return;
+        }
+        TransactionHooks.afterCommit(() -> write(current -> documents.forEach(document ->
+                current.remove(document.getName()))));
+    }
+
+    private <T> T read(Function<NameTrie, T> action) {
+        lock.readLock().lock();
+        try {
+            return action.apply(trie);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void write(Consumer<NameTrie> action) {
+        lock.writeLock().lock();
+        try {
+            action.accept(trie);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
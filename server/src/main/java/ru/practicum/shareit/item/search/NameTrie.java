@@ -0,0 +1,311 @@
+package ru.practicum.shareit.item.search;
+
+import ru.practicum.shareit.item.dto.ItemSuggestionDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Сжатое префиксное дерево (radix trie) названий items для автодополнения. Цепочки узлов с одним потомком
+ * склеены в одно ребро с меткой char[], поэтому узлов не больше двух на название. Популярность названия -
+ * число items с ним. Каждый внутренний узел хранит до capacity самых популярных названий своего поддерева,
+ * так что подсказки по префиксу не обходят поддерево, а при изменении пересчитывается только путь до названия.
+ * Не потокобезопасен.
+ */
+public class NameTrie {
+    private static final Node[] NO_NODES = new Node[0];
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+    /*
+     * Сначала более популярные, при равенстве - по алфавиту
+     */
+    private static final Comparator<Node> MOST_POPULAR_FIRST = Comparator.comparingInt((Node node) -> -node.count)
+            .thenComparing(node -> node.name);
+    private final int capacity;
+    private final Node root = new Node(new char[0]);
+    private int names;
+    private int nodes = 1;
+
+    public NameTrie(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public void add(String name) {
+        char[] key = key(name);
+        if (key.length == 0) {
+            return;
+        }
+        List<Node> path = new ArrayList<>();
+        path.add(root);
+        Node node = root;
+        int position = 0;
+        while (position < key.length) {
+            int index = childIndex(node, key[position]);
+            if (index < 0) {
+                node = addChild(node, -index - 1, Arrays.copyOfRange(key, position, key.length));
+                path.add(node);
+                break;
+            }
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, key, position);
+            if (common < child.label.length) {
+                child = split(node, index, common);
+            }
+            node = child;
+            path.add(node);
+            position += common;
+        }
+        if (node.count++ == 0) {
+            node.name = name.strip();
+            names++;
+        }
+        promote(path, node);
+    }
+
+    public boolean remove(String name) {
+        List<Node> path = path(key(name), false);
+        if (path == null) {
+            return false;
+        }
+        Node node = path.get(path.size() - 1);
+        if (node.count == 0) {
+            return false;
+        }
+        if (--node.count == 0) {
+            node.name = null;
+            names--;
+            Node parent = path.get(path.size() - 2);
+            if (node.children.length == 0) {
+                removeChild(parent, node);
+                if (parent != root && parent.count == 0 && parent.children.length == 1) {
+                    merge(path.get(path.size() - 3), parent);
+                }
+            } else if (node.children.length == 1) {
+                merge(parent, node);
+            }
+        }
+        updateBest(path);
+        return true;
+    }
+
+    /*
+     * До limit самых популярных названий, начинающихся с prefix без учёта регистра
+     */
+    public List<ItemSuggestionDto> suggest(String prefix, int limit) {
+        List<Node> path = path(collapseSpaces(TrigramIndex.normalize(prefix.stripLeading())).toCharArray(), true);
+        List<ItemSuggestionDto> suggestions = new ArrayList<>();
+        if (path == null) {
+            return suggestions;
+        }
+        Node node = path.get(path.size() - 1);
+        Node[] best = node.children.length > 0 ? node.best : node.count > 0 ? new Node[]{node} : NO_NODES;
+        for (int i = 0; i < best.length && suggestions.size() < limit; i++) {
+            suggestions.add(new ItemSuggestionDto(best[i].name, best[i].count));
+        }
+        return suggestions;
+    }
+
+    public int size() {
+        return names;
+    }
+
+    public int nodeCount() {
+        return nodes;
+    }
+
+    public static String normalize(String text) {
+        return collapseSpaces(TrigramIndex.normalize(text.strip()));
+    }
+
+    /*
+     * Пробел в конце префикса значим: "дрель " не подсказывает "дрельщик"
+     */
+    private static String collapseSpaces(String text) {
+        return SPACES.matcher(text).replaceAll(" ");
+    }
+
+    private static char[] key(String text) {
+        return normalize(text).toCharArray();
+    }
+
+    /*
+     * Узлы от корня до узла key. Если prefix, key может закончиться внутри метки ребра,
+     * тогда последним будет узел, в который оно ведёт. null, если такого пути нет
+     */
+    private List<Node> path(char[] key, boolean prefix) {
+        List<Node> path = new ArrayList<>();
+        path.add(root);
+        Node node = root;
+        int position = 0;
+        while (position < key.length) {
+            int index = childIndex(node, key[position]);
+            if (index < 0) {
+                return null;
+            }
+            node = node.children[index];
+            int common = commonPrefix(node.label, key, position);
+            if (common < node.label.length && !(prefix && position + common == key.length)) {
+                return null;
+            }
+            path.add(node);
+            position += common;
+        }
+        return path;
+    }
+
+    /*
+     * Делит ребро к index-му потомку parent после length символов, возвращает новый промежуточный узел
+     */
+    private Node split(Node parent, int index, int length) {
+        Node child = parent.children[index];
+        Node middle = new Node(Arrays.copyOf(child.label, length));
+        child.label = Arrays.copyOfRange(child.label, length, child.label.length);
+        middle.children = new Node[]{child};
+        parent.children[index] = middle;
+        nodes++;
+        return middle;
+    }
+
+    /*
+     * Склеивает узел без названия и с единственным потомком с этим потомком
+     */
+    private void merge(Node parent, Node node) {
+        Node child = node.children[0];
+        char[] label = Arrays.copyOf(node.label, node.label.length + child.label.length);
+        System.arraycopy(child.label, 0, label, node.label.length, child.label.length);
+        child.label = label;
+        parent.children[childIndex(parent, label[0])] = child;
+        nodes--;
+    }
+
+    private Node addChild(Node parent, int position, char[] label) {
+        Node child = new Node(label);
+        Node[] children = new Node[parent.children.length + 1];
+        System.arraycopy(parent.children, 0, children, 0, position);
+        children[position] = child;
+        System.arraycopy(parent.children, position, children, position + 1, parent.children.length - position);
+        parent.children = children;
+        nodes++;
+        return child;
+    }
+
+    private void removeChild(Node parent, Node child) {
+        int index = childIndex(parent, child.label[0]);
+        Node[] children = new Node[parent.children.length - 1];
+        System.arraycopy(parent.children, 0, children, 0, index);
+        System.arraycopy(parent.children, index + 1, children, index, children.length - index);
+        parent.children = children.length == 0 ? NO_NODES : children;
+        nodes--;
+    }
+
+    /*
+     * После роста популярности terminal поднимает его в лучших названиях узлов пути снизу вверх.
+     * Если terminal не вошёл в лучшие узла, выше он тоже не войдёт. Новому промежуточному узлу best считается заново
+     */
+    private void promote(List<Node> path, Node terminal) {
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node node = path.get(i);
+            if (node.children.length == 0) {
+                continue;
+            }
+            if (node.best.length == 0) {
+                updateBest(node);
+                continue;
+            }
+            Node[] best = node.best;
+            int index = best.length - 1;
+            while (index >= 0 && best[index] != terminal) {
+                index--;
+            }
+            if (index < 0) {
+                if (best.length == capacity && MOST_POPULAR_FIRST.compare(terminal, best[capacity - 1]) >= 0) {
+                    return;
+                }
+                best = Arrays.copyOf(best, Math.min(best.length + 1, capacity));
+                index = best.length - 1;
+                best[index] = terminal;
+                node.best = best;
+            }
+            for (; index > 0 && MOST_POPULAR_FIRST.compare(best[index], best[index - 1]) < 0; index--) {
+                Node swapped = best[index - 1];
+                best[index - 1] = best[index];
+                best[index] = swapped;
+            }
+        }
+    }
+
+    /*
+     * Пересчитывает лучшие названия снизу вверх. Узлы, отцепленные при удалении, пересчитываются впустую
+     */
+    private void updateBest(List<Node> path) {
+        for (int i = path.size() - 1; i >= 0; i--) {
+            updateBest(path.get(i));
+        }
+    }
+
+    private void updateBest(Node node) {
+        if (node.children.length == 0) {
+            node.best = NO_NODES;
+            return;
+        }
+        List<Node> candidates = new ArrayList<>();
+        if (node.count > 0) {
+            candidates.add(node);
+        }
+        for (Node child : node.children) {
+            if (child.children.length == 0) {
+                candidates.add(child);
+            } else {
+                candidates.addAll(Arrays.asList(child.best));
+            }
+        }
+        candidates.sort(MOST_POPULAR_FIRST);
+        node.best = candidates.subList(0, Math.min(capacity, candidates.size())).toArray(NO_NODES);
+    }
+
+    /*
+     * Индекс потомка с меткой на first или -(точка вставки) - 1, потомки отсортированы по первому символу
+     */
+    private static int childIndex(Node node, char first) {
+        int low = 0;
+        int high = node.children.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char label = node.children[middle].label[0];
+            if (label < first) {
+                low = middle + 1;
+            } else if (label > first) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -low - 1;
+    }
+
+    private static int commonPrefix(char[] label, char[] key, int position) {
+        int length = Math.min(label.length, key.length - position);
+        int common = 0;
+        while (common < length && label[common] == key[position + common]) {
+            common++;
+        }
+        return common;
+    }
+
+    /*
+     * У листа best не хранится: лучшее в его поддереве - он сам
+     */
+    private static class Node {
+        private char[] label;
+        private Node[] children = NO_NODES;
+        private Node[] best = NO_NODES;
+        private String name;
+        private int count;
+
+        private Node(char[] label) {
+            this.label = label;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.experimental.UtilityClass;
+import ru.practicum.shareit.item.dto.ItemSearchDocumentDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Ранжирование найденных items по релевантности запросу. Каждое вхождение слова запроса в name
+ * стоит NAME_WEIGHT, в description - DESCRIPTION_WEIGHT; name, начинающийся со всего запроса, получает PREFIX_BONUS.
+ * Для страницы [from, from + size) хранится только from + size лучших документов в куче, полная сортировка не нужна.
+ */
+@UtilityClass
+public class RelevanceRanking {
+    private static final int NAME_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int PREFIX_BONUS = 5;
+    /*
+     * Хуже тот, у кого меньше score, при равенстве - больший id
+     */
+    private static final Comparator<Scored> WORST_FIRST = Comparator.comparingInt((Scored scored) -> scored.score)
+            .thenComparing(scored -> scored.document.getId(), Comparator.reverseOrder());
+
+    public TopK topK(String text, int from, int size) {
+        return new TopK(TrigramIndex.normalize(text), from, size);
+    }
+
+    public int score(ItemSearchDocumentDto document, String normalizedText, String[] terms) {
+        String name = TrigramIndex.normalize(document.getName());
+        String description = TrigramIndex.normalize(document.getDescription());
+        int score = name.startsWith(normalizedText) ? PREFIX_BONUS : 0;
+        for (String term : terms) {
+            score += NAME_WEIGHT * occurrences(name, term) + DESCRIPTION_WEIGHT * occurrences(description, term);
+        }
+        return score;
+    }
+
+    private int occurrences(String text, String term) {
+        int count = 0;
+        for (int index = text.indexOf(term); index >= 0; index = text.indexOf(term, index + term.length())) {
+            count++;
+        }
+        return count;
+    }
+
+    public static class TopK {
+        private final String normalizedText;
+        private final String[] terms;
+        private final int from;
+        private final int capacity;
+        private final PriorityQueue<Scored> heap;
+
+        private TopK(String normalizedText, int from, int size) {
+            this.normalizedText = normalizedText;
+            this.terms = Arrays.stream(normalizedText.split("\\s+")).filter(term -> !term.isEmpty())
+                    .toArray(String[]::new);
+            this.from = from;
+            // from и size приходят из запроса, их сумма может не поместиться в int
+            this.capacity = (int) Math.min((long) from + size, Integer.MAX_VALUE);
+            this.heap = new PriorityQueue<>(Math.min(capacity, 1024) + 1, WORST_FIRST);
+        }
+
+        public void offer(ItemSearchDocumentDto document) {
+            Scored scored = new Scored(document, score(document, normalizedText, terms));
+            if (heap.size() < capacity) {
+                heap.add(scored);
+            } else if (WORST_FIRST.compare(scored, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(scored);
+            }
+        }
+
+        /*
+         * Документы страницы от лучшего к худшему
+         */
+        public List<ItemSearchDocumentDto> page() {
+            List<Scored> best = new ArrayList<>(heap);
+            best.sort(WORST_FIRST.reversed());
+            List<ItemSearchDocumentDto> page = new ArrayList<>();
+            for (int i = from; i < best.size(); i++) {
+                page.add(best.get(i).document);
+            }
+            return page;
+        }
+    }
+
+    private static class Scored {
+        private final ItemSearchDocumentDto document;
+        private final int score;
+
+        private Scored(ItemSearchDocumentDto document, int score) {
+            this.document = document;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package ru.practicum.shareit.item.search;
+
+import ru.practicum.shareit.item.dto.ItemSearchDocumentDto;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Инвертированный индекс триграмм name и description в отсортированные списки id item.
+ * Поиск пересекает списки триграмм запроса и проверяет подстроку только у оставшихся кандидатов,
+ * поэтому семантика совпадает с LIKE '%text%' без учёта регистра. Не потокобезопасен.
+ */
+public class TrigramIndex {
+    private static final int GRAM_LENGTH = 3;
+    private static final long[] EMPTY = new long[0];
+    private final Map<Long, ItemSearchDocumentDto> documents = new HashMap<>();
+    private final Map<Long, PostingList> postings = new HashMap<>();
+    private final PostingList allIds = new PostingList();
+
+    public void add(ItemSearchDocumentDto document) {
+        remove(document.getId());
+        documents.put(document.getId(), document);
+        allIds.add(document.getId());
+        for (long gram : grams(document)) {
+            postings.computeIfAbsent(gram, key -> new PostingList()).add(document.getId());
+        }
+    }
+
+    public boolean remove(long id) {
+        ItemSearchDocumentDto document = documents.remove(id);
+        if (document == null) {
+            return false;
+        }
+        allIds.remove(id);
+        for (long gram : grams(document)) {
+            PostingList list = postings.get(gram);
+            list.remove(id);
+            if (list.size == 0) {
+                postings.remove(gram);
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Документы, в name или description которых есть text, по возрастанию id, начиная с from-го совпадения
+     */
+    public List<ItemSearchDocumentDto> search(String text, int from, int size) {
+        List<ItemSearchDocumentDto> result = new ArrayList<>();
+        int[] skipped = new int[1];
+        forEachMatch(text, document -> {
+            if (skipped[0] < from) {
+                skipped[0]++;
+            } else {
+                result.add(document);
+            }
+            return result.size() < size;
+        });
+        return result;
+    }
+
+    /*
+     * Передаёт action совпадения по возрастанию id, пока action возвращает true.
+     * Самый короткий список триграмм запроса обходится по порядку, остальные проверяются двоичным поиском
+     * со сдвигающейся нижней границей
+     */
+    public void forEachMatch(String text, Predicate<ItemSearchDocumentDto> action) {
+        String query = normalize(text);
+        PostingList[] lists = postingLists(query);
+        if (lists.length == 0) {
+            return;
+        }
+        int[] lowerBounds = new int[lists.length];
+        PostingList shortest = lists[0];
+        for (int i = 0; i < shortest.size; i++) {
+            long id = shortest.ids[i];
+            if (!containsInAll(lists, lowerBounds, id)) {
+                continue;
+            }
+            ItemSearchDocumentDto document = documents.get(id);
+            if (matches(document, query) && !action.test(document)) {
+                return;
+            }
+        }
+    }
+
+    /*
+     * Обрезает списки до их размера, после массовой загрузки в них остаётся запас от роста
+     */
+    public void compact() {
+        allIds.trim();
+        postings.values().forEach(PostingList::trim);
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    public int gramCount() {
+        return postings.size();
+    }
+
+    public long postingCount() {
+        long count = 0;
+        for (PostingList list : postings.values()) {
+            count += list.size;
+        }
+        return count;
+    }
+
+    /*
+     * Приблизительный объём в байтах: массивы списков, записи HashMap и строки документов
+     */
+    public long estimatedBytes() {
+        long bytes = allIds.bytes();
+        for (PostingList list : postings.values()) {
+            bytes += list.bytes() + 64;
+        }
+        for (ItemSearchDocumentDto document : documents.values()) {
+            bytes += 120 + 2L * (document.getName().length() + document.getDescription().length());
+        }
+        return bytes;
+    }
+
+    public static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean matches(ItemSearchDocumentDto document, String normalizedText) {
+        return normalize(document.getName()).contains(normalizedText)
+                || normalize(document.getDescription()).contains(normalizedText);
+    }
+
+    /*
+     * Списки триграмм запроса от короткого к длинному; пустой массив, если совпадений быть не может
+     */
+    private PostingList[] postingLists(String query) {
+        if (query.isEmpty()) {
+            return new PostingList[0];
+        }
+        if (query.length() < GRAM_LENGTH) {
+            return new PostingList[]{allIds};
+        }
+        long[] grams = grams(query, EMPTY);
+        PostingList[] lists = new PostingList[grams.length];
+        for (int i = 0; i < grams.length; i++) {
+            lists[i] = postings.get(grams[i]);
+            if (lists[i] == null) {
+                return new PostingList[0];
+            }
+        }
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+        return lists;
+    }
+
+    private static boolean containsInAll(PostingList[] lists, int[] lowerBounds, long id) {
+        for (int j = 1; j < lists.length; j++) {
+            PostingList list = lists[j];
+            int index = Arrays.binarySearch(list.ids, lowerBounds[j], list.size, id);
+            if (index < 0) {
+                lowerBounds[j] = -index - 1;
+                return false;
+            }
+            lowerBounds[j] = index + 1;
+        }
+        return true;
+    }
+
+    private static long[] grams(ItemSearchDocumentDto document) {
+        return grams(normalize(document.getName()), grams(normalize(document.getDescription()), EMPTY));
+    }
+
+    /*
+     * Различные триграммы text вместе с extra. Триграмма упакована в long по 16 бит на символ
+     */
+    private static long[] grams(String text, long[] extra) {
+        int count = Math.max(text.length() - GRAM_LENGTH + 1, 0);
+        long[] grams = Arrays.copyOf(extra, extra.length + count);
+        for (int i = 0; i < count; i++) {
+            grams[extra.length + i] = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16)
+                    | text.charAt(i + 2);
+        }
+        Arrays.sort(grams);
+        int unique = 0;
+        for (int i = 0; i < grams.length; i++) {
+            if (i == 0 || grams[i] != grams[i - 1]) {
+                grams[unique++] = grams[i];
+            }
+        }
+        return Arrays.copyOf(grams, unique);
+    }
+
+    private static class PostingList {
+        private long[] ids = EMPTY;
+        private int size;
+
+        void add(long id) {
+            int index = size == 0 || ids[size - 1] < id ? -size - 1 : Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            int position = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(4, size + (size >> 1)));
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+
+        void remove(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+                size--;
+            }
+        }
+
+        void trim() {
+            if (ids.length > size) {
+                ids = Arrays.copyOf(ids, size);
+            }
+        }
+
+        long bytes() {
+            return 16 + 8L * ids.length;
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package ru.practicum.shareit.item.service;
 
 import ru.practicum.shareit.item.dto.*;
+import ru.practicum.shareit.item.search.ItemSearchMode;
+import ru.practicum.shareit.item.search.ItemSearchSort;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface ItemService {
@@ -13,7 +16,14 @@ public interface ItemService {
 
     List<ItemFullResponseDto> getAllUserItemsDto(Long userId, Integer from, Integer size);
 
-    List<ItemResponseDto> searchItemsDto(String text, Long userId, Integer from, Integer size);
+    List<ItemResponseDto> searchItemsDto(String text, Long userId, ItemSearchMode mode, ItemSearchSort sort,
+                                         Integer from, Integer size);
+
+    ItemSearchIndexStatsDto rebuildSearchIndex();
+
+    List<ItemSuggestionDto> suggestItemNames(String prefix, Integer limit);
+
+    ItemAvailabilityDto getItemAvailability(Long itemId, Long userId, LocalDateTime from, LocalDateTime to);
 
     CommentResponseDto createComment(Long userId, Long itemId, CommentRequestDto commentRequestDto);
 }
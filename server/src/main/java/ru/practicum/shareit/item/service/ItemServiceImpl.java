@@ -5,8 +5,13 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.dto.BookingIntervalDto;
+import ru.practicum.shareit.booking.dto.BookingShortResponseDto;
+import ru.practicum.shareit.booking.dto.LastNextBookingView;
+import ru.practicum.shareit.booking.index.BookingIntervalIndex;
+import ru.practicum.shareit.booking.mapper.BookingMapper;
 import ru.practicum.shareit.booking.model.Status;
 import ru.practicum.shareit.booking.repository.BookingRepository;
 import ru.practicum.shareit.exception.BadRequestException;
@@ -18,14 +23,21 @@ import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.CommentRepository;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.search.ItemSearchCache;
+import ru.practicum.shareit.item.search.ItemSearchIndex;
+import ru.practicum.shareit.item.search.ItemSearchMode;
+import ru.practicum.shareit.item.search.ItemSearchProperties;
+import ru.practicum.shareit.item.search.ItemSearchSort;
+import ru.practicum.shareit.item.search.ItemSuggestIndex;
+import ru.practicum.shareit.item.search.RelevanceRanking;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 import ru.practicum.shareit.utils.CustomPageRequest;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -36,8 +48,13 @@ public class ItemServiceImpl implements ItemService {
     private final UserRepository userRepository;
     private final CommentRepository commentRepository;
     private final BookingRepository bookingRepository;
+    private final ItemSearchProperties searchProperties;
+    private final ItemSearchIndex itemSearchIndex;
+    private final ItemSuggestIndex itemSuggestIndex;
+    private final ItemSearchCache itemSearchCache;
     private static final String USER_NOT_FOUND = "User с id: %d не найден";
     private static final String ITEM_NOT_FOUND = "Item с id: %d не найден";
+    private static final int AVAILABILITY_DEFAULT_DAYS = 30;
 
     @Override
     @Transactional
@@ -45,8 +62,12 @@ public class ItemServiceImpl implements ItemService {
         Item item = ItemMapper.dtoToItem(itemRequestDto);
         item.setOwner(userRepository.findById(userId).orElseThrow(() ->
                 new ObjectNotFoundException(String.format(USER_NOT_FOUND, userId))));
+        Item saved = itemRepository.save(item);
+        itemSearchIndex.update(saved);
+        itemSuggestIndex.update(null, saved);
+        itemSearchCache.invalidate(null, saved);
         log.info("Создан item пользователем с id: {}", userId);
-        return ItemMapper.itemToDto(itemRepository.save(item));
+        return ItemMapper.itemToDto(saved);
     }
 
     @Override
@@ -56,37 +77,32 @@ public class ItemServiceImpl implements ItemService {
         checkItemOwner(id, userId);
         Item item = itemRepository.findById(id).orElseThrow(() ->
                 new ObjectNotFoundException(String.format(ITEM_NOT_FOUND, id)));
+        ItemSearchDocumentDto before = ItemMapper.availableItemToDocument(item);
         Optional.ofNullable(itemRequestDto.getName()).ifPresent(item::setName);
         Optional.ofNullable(itemRequestDto.getDescription()).ifPresent(item::setDescription);
         Optional.ofNullable(itemRequestDto.getAvailable()).ifPresent(item::setAvailable);
+        Item saved = itemRepository.save(item);
+        itemSearchIndex.update(saved);
+        itemSuggestIndex.update(before, saved);
+        itemSearchCache.invalidate(before, saved);
         log.info("Обновлен item с id: {} пользователем с id: {}", id, userId);
-        return ItemMapper.itemToDto(itemRepository.save(item));
+        return ItemMapper.itemToDto(saved);
     }
 
     @Override
     public ItemFullResponseDto getItemDtoById(Long itemId, Long userId) {
-        checkUserExistsById(userId);
-        Item item = itemRepository.findById(itemId).orElseThrow(() ->
-                new ObjectNotFoundException(String.format(ITEM_NOT_FOUND, itemId)));
-        if (item.getOwner().getId().equals(userId)) {
-            Booking lastBooking = bookingRepository.findFirstByItemIdAndEndIsBeforeAndStatusIs(item.getId(),
-                            LocalDateTime.now().plusHours(1), Status.APPROVED, Sort.by("end").descending())
-                    .orElse(null);
-            if (lastBooking != null && lastBooking.getStatus() == Status.REJECTED) {
-                lastBooking = null;
-            }
-            Booking nextBooking = bookingRepository.findFirstByItemIdAndStartIsAfterAndStatusIs(item.getId(),
-                            LocalDateTime.now(), Status.APPROVED, Sort.by("start").ascending())
-                    .orElse(null);
-            if (nextBooking != null && nextBooking.getStatus() == Status.REJECTED) {
-                nextBooking = null;
-            }
-            return ItemMapper.toItemResponseDto(item, lastBooking, nextBooking,
-                    commentRepository.findAllByItemId(itemId));
+        LocalDateTime now = LocalDateTime.now();
+        List<ItemBookingsView> rows = itemRepository.findItemsWithLastAndNextBookings(List.of(itemId), userId,
+                Status.APPROVED.getCode(), now.plusHours(1), now);
+        if (rows.isEmpty()) {
+            checkUserExistsById(userId);
+            throw new ObjectNotFoundException(String.format(ITEM_NOT_FOUND, itemId));
+        }
+        if (!rows.get(0).getOwnerId().equals(userId)) {
+            checkUserExistsById(userId);
         }
         log.info("Получен item с id: {} пользователем с id: {}", itemId, userId);
-        return ItemMapper.toItemResponseDto(item, null, null,
-                commentRepository.findAllByItemId(itemId));
+        return ItemMapper.toItemFullResponseDto(rows, commentRepository.findAllByItemId(itemId));
     }
 
     @Override
@@ -94,38 +110,92 @@ public class ItemServiceImpl implements ItemService {
         checkUserExistsById(userId);
         Pageable pageable = new CustomPageRequest(from / size, size, Sort.by("id"));
         List<Item> items = itemRepository.findAllByOwnerId(userId, pageable);
+        if (items.isEmpty()) {
+            return Collections.emptyList();
+        }
         List<Long> itemIds = items.stream().map(Item::getId).collect(Collectors.toList());
-        List<Booking> lastBookings = bookingRepository.findFirstByItemIdInAndEndIsBeforeOrderByEndDesc(itemIds,
-                LocalDateTime.now());
-        List<Booking> nextBookings = bookingRepository.findFirstByItemIdInAndStartIsAfterOrderByStart(itemIds,
-                LocalDateTime.now());
-        Map<Long, Booking> lastBookingMap = lastBookings.stream()
-                .collect(Collectors.toMap(booking -> booking.getItem().getId(), Function.identity()));
-        Map<Long, Booking> nextBookingMap = nextBookings.stream()
-                .collect(Collectors.toMap(booking -> booking.getItem().getId(), Function.identity()));
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, BookingShortResponseDto> lastBookingMap = new HashMap<>();
+        Map<Long, BookingShortResponseDto> nextBookingMap = new HashMap<>();
+        for (LastNextBookingView booking : bookingRepository.findLastAndNextBookings(itemIds,
+                Status.APPROVED.getCode(), now, now)) {
+            Map<Long, BookingShortResponseDto> bookingMap = LastNextBookingView.LAST.equals(booking.getPosition())
+                    ? lastBookingMap : nextBookingMap;
+            bookingMap.put(booking.getItemId(), BookingMapper.viewToDtoId(booking));
+        }
         Map<Long, List<Comment>> commentMap = commentRepository
                 .findAllByItemIdIn(itemIds)
                 .stream()
                 .collect(Collectors.groupingBy(comment -> comment.getItem().getId()));
         List<ItemFullResponseDto> itemFullResponseDtos = new ArrayList<>();
         for (Item item : items) {
-            itemFullResponseDtos.add(ItemMapper.toItemResponseDto(item, lastBookingMap.get(item.getId()),
+            itemFullResponseDtos.add(ItemMapper.toItemFullResponseDto(item, lastBookingMap.get(item.getId()),
                     nextBookingMap.get(item.getId()), commentMap.getOrDefault(item.getId(), Collections.emptyList())));
         }
         return itemFullResponseDtos;
     }
 
     @Override
-    public List<ItemResponseDto> searchItemsDto(String text, Long userId, Integer from, Integer size) {
+    public List<ItemResponseDto> searchItemsDto(String text, Long userId, ItemSearchMode mode, ItemSearchSort sort,
+                                                Integer from, Integer size) {
         checkUserExistsById(userId);
         if (text.isBlank()) {
             log.info("По запросу User ID {}, получен пустой лист", userId);
             return Collections.emptyList();
         }
-        Pageable pageable = new CustomPageRequest(from / size, size);
-        List<Item> items = itemRepository.getAvailableItemByText(text, pageable);
-        log.info("Найдены все items по запросу {}", text);
-        return ItemMapper.listItemsToListDto(items);
+        ItemSearchMode searchMode = mode == null ? searchProperties.getMode() : mode;
+        ItemSearchSort searchSort = sort == null ? ItemSearchSort.NONE : sort;
+        /*
+         * Индекс в памяти отвечает быстрее кэша, кэшируются только запросы к БД
+         */
+        if (!searchProperties.isCacheEnabled() || searchMode == ItemSearchMode.INDEX) {
+            return findItems(text, searchMode, searchSort, from, size);
+        }
+        return itemSearchCache.get(text, searchMode, searchSort, from, size,
+                () -> findItems(text, searchMode, searchSort, from, size));
+    }
+
+    @Override
+    public ItemSearchIndexStatsDto rebuildSearchIndex() {
+        ItemSearchIndexStatsDto stats = itemSearchIndex.rebuild();
+        log.info("Перестроен индекс поиска items");
+        return stats;
+    }
+
+    /*
+     * Без транзакции: подсказки берутся только из памяти и не должны занимать соединение с БД
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<ItemSuggestionDto> suggestItemNames(String prefix, Integer limit) {
+        if (prefix.isBlank()) {
+            return Collections.emptyList();
+        }
+        return itemSuggestIndex.suggest(prefix, limit);
+    }
+
+    @Override
+    public ItemAvailabilityDto getItemAvailability(Long itemId, Long userId, LocalDateTime from, LocalDateTime to) {
+        checkUserExistsById(userId);
+        Item item = itemRepository.findById(itemId).orElseThrow(() ->
+                new ObjectNotFoundException(String.format(ITEM_NOT_FOUND, itemId)));
+        LocalDateTime start = from == null ? LocalDateTime.now() : from;
+        LocalDateTime end = to == null ? start.plusDays(AVAILABILITY_DEFAULT_DAYS) : to;
+        if (!start.isBefore(end)) {
+            throw new BadRequestException("Начало периода должно быть раньше его конца");
+        }
+        List<TimeSlotDto> freeSlots = Collections.emptyList();
+        if (item.getAvailable()) {
+            freeSlots = mergeFreeSlots(bookingRepository.findItemIntervals(itemId,
+                    BookingIntervalIndex.BLOCKING_STATUSES, start, end), start, end);
+        }
+        return ItemAvailabilityDto.builder()
+                .itemId(itemId)
+                .available(item.getAvailable())
+                .from(start)
+                .to(end)
+                .freeSlots(freeSlots)
+                .build();
     }
 
     @Override
@@ -144,6 +214,62 @@ public class ItemServiceImpl implements ItemService {
         return CommentMapper.toResponseDto(commentRepository.save(comment));
     }
 
+    private List<ItemResponseDto> findItems(String text, ItemSearchMode searchMode, ItemSearchSort sort,
+                                            Integer from, Integer size) {
+        if (sort == ItemSearchSort.RELEVANCE) {
+            List<ItemResponseDto> found = searchItemsByRelevance(text, searchMode, from, size);
+            log.info("Найдены items по запросу {} в порядке релевантности", text);
+            return found;
+        }
+        if (searchMode == ItemSearchMode.INDEX) {
+            List<ItemResponseDto> found = itemSearchIndex.search(text, from, size).stream()
+                    .map(ItemMapper::documentToDto)
+                    .collect(Collectors.toList());
+            log.info("Найдены все items по запросу {} в индексе", text);
+            return found;
+        }
+        Pageable pageable = new CustomPageRequest(from / size, size);
+        List<Item> items;
+        switch (searchMode) {
+            case FTS:
+                items = itemRepository.getAvailableItemByTsQuery(text, pageable);
+                break;
+            case TRGM:
+                int candidates = searchProperties.getTrgmCandidates();
+                long blocks = ((long) from + size + candidates - 1) / candidates;
+                items = itemRepository.getAvailableItemBySimilarity(text, candidates,
+                        (int) Math.min(blocks * candidates, Integer.MAX_VALUE), pageable);
+                break;
+            case LIKE:
+            default:
+                items = itemRepository.getAvailableItemByText(text, pageable);
+        }
+        log.info("Найдены все items по запросу {}", text);
+        return ItemMapper.listItemsToListDto(items);
+    }
+
+    private List<ItemResponseDto> searchItemsByRelevance(String text, ItemSearchMode mode, Integer from,
+                                                         Integer size) {
+        List<ItemSearchDocumentDto> documents;
+        switch (mode) {
+            case INDEX:
+                documents = itemSearchIndex.searchByRelevance(text, from, size);
+                break;
+            case FTS:
+                return ItemMapper.listItemsToListDto(itemRepository.getAvailableItemByTsQueryRanked(text,
+                        new CustomPageRequest(from / size, size)));
+            case LIKE:
+            case TRGM:
+            default:
+                RelevanceRanking.TopK topK = RelevanceRanking.topK(text, from, size);
+                try (Stream<ItemSearchDocumentDto> matches = itemRepository.streamAvailableSearchDocumentsByText(text)) {
+                    matches.forEach(topK::offer);
+                }
+                documents = topK.page();
+        }
+        return documents.stream().map(ItemMapper::documentToDto).collect(Collectors.toList());
+    }
+
     private void checkUserExistsById(Long id) {
         if (!userRepository.existsById(id)) {
             throw new ObjectNotFoundException(String.format(USER_NOT_FOUND, id));
@@ -156,4 +282,22 @@ public class ItemServiceImpl implements ItemService {
             throw new ObjectNotFoundException(String.format("User с id: %d не является владельцем item", userId));
         }
     }
+
+    private List<TimeSlotDto> mergeFreeSlots(List<BookingIntervalDto> intervals, LocalDateTime from,
+                                             LocalDateTime to) {
+        List<TimeSlotDto> freeSlots = new ArrayList<>();
+        LocalDateTime cursor = from;
+        for (BookingIntervalDto interval : intervals) {
+            if (interval.getStart().isAfter(cursor)) {
+                freeSlots.add(new TimeSlotDto(cursor, interval.getStart()));
+            }
+            if (interval.getEnd().isAfter(cursor)) {
+                cursor = interval.getEnd();
+            }
+        }
+        if (cursor.isBefore(to)) {
+            freeSlots.add(new TimeSlotDto(cursor, to));
+        }
+        return freeSlots;
+    }
 }
@@ -7,12 +7,18 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.exception.DuplicateEmailException;
 import ru.practicum.shareit.exception.ObjectNotFoundException;
+import ru.practicum.shareit.item.dto.ItemSearchDocumentDto;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.search.ItemSearchCache;
+import ru.practicum.shareit.item.search.ItemSearchIndex;
+import ru.practicum.shareit.item.search.ItemSuggestIndex;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.mapper.UserMapper;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -20,6 +26,10 @@ import java.util.List;
 @Transactional(readOnly = true)
 public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
+    private final ItemRepository itemRepository;
+    private final ItemSearchIndex itemSearchIndex;
+    private final ItemSuggestIndex itemSuggestIndex;
+    private final ItemSearchCache itemSearchCache;
     private static final String EMAIL_DUPLICATE = "Пользователь с таким email уже существует";
     private static final String USER_NOT_FOUND = "User с id: %d не найден";
 
@@ -66,7 +76,11 @@ public class UserServiceImpl implements UserService {
     @Transactional
     public void deleteUserDtoById(Long id) {
         checkUserExistsById(id);
+        List<ItemSearchDocumentDto> items = itemRepository.findAvailableSearchDocumentsByOwnerId(id);
         userRepository.deleteById(id);
+        itemSearchIndex.removeByIds(items.stream().map(ItemSearchDocumentDto::getId).collect(Collectors.toList()));
+        itemSuggestIndex.removeAll(items);
+        itemSearchCache.invalidateAll(items);
         log.info("User с id: {} удален", id);
     }
 
@@ -2,4 +2,6 @@ package ru.practicum.shareit.utils;
 
 public class Constants {
     public static final String HEADER = "X-Sharer-User-Id";
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
 }
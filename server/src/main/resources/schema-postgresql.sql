@@ -0,0 +1,251 @@
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE SCHEMA IF NOT EXISTS archive;
+
+-- Пересечения периодов запрещены только для WAITING (1) и APPROVED (2), коды - Status.getCode()
+CREATE OR REPLACE FUNCTION bookings_add_period_excl(partition_name TEXT) RETURNS VOID AS '
+BEGIN
+    EXECUTE format(''ALTER TABLE %I ADD CONSTRAINT %I EXCLUDE USING gist (item_id WITH =, period WITH &&) ''
+                   ''WHERE (status IN (1, 2))'', partition_name, partition_name || ''_period_excl'');
+END' LANGUAGE plpgsql;
+
+-- Секция bookings_YYYY_MM за месяц month_start. Строки этого месяца, попавшие в bookings_default,
+-- переносятся в новую секцию: иначе PostgreSQL не даст создать секцию поверх данных DEFAULT.
+CREATE OR REPLACE FUNCTION bookings_create_partition(month_start DATE) RETURNS BOOLEAN AS '
+DECLARE
+    partition_name TEXT := ''bookings_'' || to_char(month_start, ''YYYY_MM'');
+    month_end DATE := (month_start + INTERVAL ''1 month'')::DATE;
+    columns TEXT;
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+    SELECT string_agg(quote_ident(attname), '', '' ORDER BY attnum) INTO columns
+    FROM pg_attribute
+    WHERE attrelid = ''bookings''::regclass AND attnum > 0 AND NOT attisdropped AND attgenerated = '''';
+    EXECUTE format(''CREATE TEMP TABLE bookings_moving AS SELECT %s FROM bookings_default ''
+                   ''WHERE end_date >= %L AND end_date < %L'', columns, month_start, month_end);
+    EXECUTE format(''DELETE FROM bookings_default WHERE end_date >= %L AND end_date < %L'', month_start, month_end);
+    EXECUTE format(''CREATE TABLE %I PARTITION OF bookings FOR VALUES FROM (%L) TO (%L)'',
+                   partition_name, month_start, month_end);
+    PERFORM bookings_add_period_excl(partition_name);
+    EXECUTE format(''INSERT INTO bookings (%s) SELECT %s FROM bookings_moving'', columns, columns);
+    DROP TABLE bookings_moving;
+    RETURN TRUE;
+END' LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION bookings_create_partitions(from_date DATE, until_date DATE) RETURNS INTEGER AS '
+DECLARE
+    month_start DATE := date_trunc(''month'', from_date)::DATE;
+    created INTEGER := 0;
+BEGIN
+    WHILE month_start <= until_date LOOP
+        IF bookings_create_partition(month_start) THEN
+            created := created + 1;
+        END IF;
+        month_start := (month_start + INTERVAL ''1 month'')::DATE;
+    END LOOP;
+    RETURN created;
+END' LANGUAGE plpgsql;
+
+-- Отсоединяет месячные секции, целиком закончившиеся до before_date, и переносит их в схему archive
+CREATE OR REPLACE FUNCTION bookings_archive_partitions(before_date DATE) RETURNS INTEGER AS '
+DECLARE
+    partition_name TEXT;
+    archived INTEGER := 0;
+BEGIN
+    FOR partition_name IN
+        SELECT c.relname
+        FROM pg_inherits AS i
+        JOIN pg_class AS c ON c.oid = i.inhrelid
+        WHERE i.inhparent = ''bookings''::regclass
+          AND c.relname ~ ''^bookings_[0-9]{4}_[0-9]{2}$''
+          AND to_date(substr(c.relname, 10), ''YYYY_MM'') + INTERVAL ''1 month'' <= before_date
+        ORDER BY c.relname
+    LOOP
+        EXECUTE format(''ALTER TABLE bookings DETACH PARTITION %I'', partition_name);
+        EXECUTE format(''ALTER TABLE %I SET SCHEMA archive'', partition_name);
+        archived := archived + 1;
+    END LOOP;
+    RETURN archived;
+END' LANGUAGE plpgsql;
+
+-- Переход status с имени (VARCHAR) на код Status.getCode() (SMALLINT). Условие exclusion constraint
+-- сравнивает status со строками, поэтому в секциях он пересоздаётся после смены типа.
+DO '
+DECLARE
+    partition_name TEXT;
+BEGIN
+    IF (SELECT atttypid FROM pg_attribute WHERE attrelid = ''bookings''::regclass AND attname = ''status'')
+            = ''smallint''::regtype THEN
+        RETURN;
+    END IF;
+    ALTER TABLE bookings DROP CONSTRAINT IF EXISTS bookings_item_period_excl;
+    FOR partition_name IN
+        SELECT c.relname FROM pg_inherits AS i JOIN pg_class AS c ON c.oid = i.inhrelid
+        WHERE i.inhparent = ''bookings''::regclass
+    LOOP
+        EXECUTE format(''ALTER TABLE %I DROP CONSTRAINT IF EXISTS %I'', partition_name, partition_name || ''_period_excl'');
+    END LOOP;
+    ALTER TABLE bookings ALTER COLUMN status TYPE SMALLINT USING CASE status
+        WHEN ''WAITING'' THEN 1
+        WHEN ''APPROVED'' THEN 2
+        WHEN ''REJECTED'' THEN 3
+        WHEN ''CANCELED'' THEN 4
+    END;
+    FOR partition_name IN
+        SELECT c.relname FROM pg_inherits AS i JOIN pg_class AS c ON c.oid = i.inhrelid
+        WHERE i.inhparent = ''bookings''::regclass
+    LOOP
+        PERFORM bookings_add_period_excl(partition_name);
+    END LOOP;
+END';
+
+-- Переход bookings на секционирование по end_date. schema.sql создаёт обычную таблицу,
+-- здесь она один раз заменяется секционированной с переносом данных.
+-- Exclusion constraint на секционированной таблице PostgreSQL не поддерживает, поэтому он создаётся
+-- в каждой секции, а пересечения между секциями проверяет триггер bookings_check_period.
+-- Если в старой таблице есть пересекающиеся bookings, переход откатывается и приложение не запускается:
+-- ошибка перечисляет первые такие пары, их нужно исправить вручную.
+DO '
+DECLARE
+    first_month DATE;
+    overlapping TEXT;
+BEGIN
+    IF (SELECT relkind FROM pg_class WHERE oid = ''bookings''::regclass) = ''p'' THEN
+        RETURN;
+    END IF;
+    ALTER TABLE bookings RENAME TO bookings_unpartitioned;
+    ALTER TABLE bookings_unpartitioned RENAME CONSTRAINT bookings_pkey TO bookings_unpartitioned_pkey;
+    ALTER TABLE bookings_unpartitioned DROP CONSTRAINT IF EXISTS bookings_item_period_excl;
+    DROP INDEX IF EXISTS bookings_item_start_idx;
+    DROP INDEX IF EXISTS bookings_owner_start_idx;
+    DROP INDEX IF EXISTS bookings_owner_status_start_idx;
+
+    CREATE TABLE bookings
+    (
+        id         BIGINT GENERATED BY DEFAULT AS IDENTITY,
+        start_date TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+        end_date   TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+        item_id    BIGINT                      NOT NULL,
+        booker_id  BIGINT                      NOT NULL,
+        status     SMALLINT                    NOT NULL,
+        owner_id   BIGINT,
+        version    BIGINT                      NOT NULL DEFAULT 0,
+        period     TSRANGE GENERATED ALWAYS AS (tsrange(start_date, end_date, ''[)'')) STORED,
+        PRIMARY KEY (id, end_date),
+        FOREIGN KEY (item_id) REFERENCES items (id) ON DELETE CASCADE,
+        FOREIGN KEY (booker_id) REFERENCES users (id) ON DELETE CASCADE
+    ) PARTITION BY RANGE (end_date);
+    CREATE TABLE bookings_default PARTITION OF bookings DEFAULT;
+    PERFORM bookings_add_period_excl(''bookings_default'');
+
+    SELECT date_trunc(''month'', LEAST(MIN(end_date), now()))::DATE INTO first_month FROM bookings_unpartitioned;
+    PERFORM bookings_create_partitions(first_month, (now() + INTERVAL ''12 months'')::DATE);
+
+    INSERT INTO bookings (id, start_date, end_date, item_id, booker_id, status, owner_id, version)
+    SELECT id, start_date, end_date, item_id, booker_id, status, owner_id, version
+    FROM bookings_unpartitioned;
+    PERFORM setval(pg_get_serial_sequence(''bookings'', ''id''), COALESCE(MAX(id), 0) + 1, false) FROM bookings;
+    DROP TABLE bookings_unpartitioned;
+EXCEPTION
+    WHEN exclusion_violation THEN
+        SELECT string_agg(format(''%s и %s (item %s)'', first_id, second_id, item_id), '', '')
+        INTO overlapping
+        FROM (SELECT a.id AS first_id, b.id AS second_id, a.item_id
+              FROM bookings AS a
+                       JOIN bookings AS b ON b.item_id = a.item_id AND b.id > a.id
+              WHERE a.status IN (1, 2)
+                AND b.status IN (1, 2)
+                AND a.start_date < b.end_date
+                AND a.end_date > b.start_date
+              ORDER BY a.id, b.id
+              LIMIT 20) AS pairs;
+        RAISE EXCEPTION ''bookings не секционирована: пересекаются WAITING и APPROVED bookings %'', overlapping
+            USING ERRCODE = ''exclusion_violation'',
+                HINT = ''Отмените или исправьте эти bookings и перезапустите приложение'';
+END';
+
+-- Exclusion constraint секции видит только свои строки, а периоды одного item с end_date в разных месяцах
+-- лежат в разных секциях. Поэтому пересечение WAITING (1) и APPROVED (2) bookings проверяет триггер по всей
+-- таблице. Advisory lock по item_id до конца транзакции сериализует проверки одного item, и следующая
+-- транзакция видит уже закоммиченные строки предыдущей. Ошибка - exclusion_violation (23P01), как у constraint.
+CREATE OR REPLACE FUNCTION bookings_check_period() RETURNS TRIGGER AS '
+BEGIN
+    IF NEW.status NOT IN (1, 2) THEN
+        RETURN NEW;
+    END IF;
+    IF TG_OP = ''UPDATE'' AND OLD.status IN (1, 2) AND OLD.item_id = NEW.item_id
+            AND OLD.start_date = NEW.start_date AND OLD.end_date = NEW.end_date THEN
+        RETURN NEW;
+    END IF;
+    PERFORM pg_advisory_xact_lock(NEW.item_id);
+    IF EXISTS (SELECT 1 FROM bookings
+               WHERE item_id = NEW.item_id
+                 AND id <> NEW.id
+                 AND status IN (1, 2)
+                 AND start_date < NEW.end_date
+                 AND end_date > NEW.start_date) THEN
+        RAISE EXCEPTION ''Item % уже забронирован на период [%, %)'', NEW.item_id, NEW.start_date, NEW.end_date
+            USING ERRCODE = ''exclusion_violation'';
+    END IF;
+    RETURN NEW;
+END' LANGUAGE plpgsql;
+
+DO '
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_trigger
+                   WHERE tgrelid = ''bookings''::regclass AND tgname = ''bookings_check_period'') THEN
+        CREATE TRIGGER bookings_check_period BEFORE INSERT OR UPDATE ON bookings
+            FOR EACH ROW EXECUTE FUNCTION bookings_check_period();
+    END IF;
+END';
+
+CREATE INDEX IF NOT EXISTS bookings_item_start_idx ON bookings (item_id, start_date);
+
+CREATE INDEX IF NOT EXISTS bookings_owner_start_idx ON bookings (owner_id, start_date DESC);
+
+CREATE INDEX IF NOT EXISTS bookings_owner_status_start_idx ON bookings (owner_id, status, start_date DESC);
+
+-- Заполнение owner_id у bookings, созданных до появления столбца. Частичный индекс содержит только
+-- такие строки, поэтому на каждом старте UPDATE читает пустой индекс, а не всю таблицу.
+CREATE INDEX IF NOT EXISTS bookings_owner_missing_idx ON bookings (id) WHERE owner_id IS NULL;
+
+UPDATE bookings SET owner_id = (SELECT i.owner_id FROM items AS i WHERE i.id = bookings.item_id)
+WHERE owner_id IS NULL;
+
+-- Частичные индексы по статусу: в каждом только строки одного статуса, а INCLUDE покрывает запросы
+-- last/next booking целиком (index-only scan). Условия индексов - коды Status.getCode().
+DROP INDEX IF EXISTS bookings_item_status_end_idx;
+
+DROP INDEX IF EXISTS bookings_item_status_start_idx;
+
+CREATE INDEX IF NOT EXISTS bookings_booker_waiting_start_idx ON bookings (booker_id, start_date DESC, id DESC)
+    WHERE status = 1;
+
+CREATE INDEX IF NOT EXISTS bookings_booker_rejected_start_idx ON bookings (booker_id, start_date DESC, id DESC)
+    WHERE status = 3;
+
+CREATE INDEX IF NOT EXISTS bookings_waiting_start_idx ON bookings (start_date) WHERE status = 1;
+
+CREATE INDEX IF NOT EXISTS bookings_item_approved_end_idx ON bookings (item_id, end_date DESC, id DESC)
+    INCLUDE (booker_id) WHERE status = 2;
+
+CREATE INDEX IF NOT EXISTS bookings_item_approved_start_idx ON bookings (item_id, start_date, id)
+    INCLUDE (booker_id, end_date) WHERE status = 2;
+
+-- Полнотекстовый поиск items (shareit.item.search.mode=fts). Индекс только по доступным items,
+-- как и сам поиск; name весит больше description
+ALTER TABLE items ADD COLUMN IF NOT EXISTS search_vector TSVECTOR
+    GENERATED ALWAYS AS (setweight(to_tsvector('russian', name), 'A') ||
+                         setweight(to_tsvector('russian', description), 'B')) STORED;
+
+CREATE INDEX IF NOT EXISTS items_search_vector_idx ON items USING gin (search_vector) WHERE is_available;
+
+-- Поиск подстроки по триграммам (shareit.item.search.mode=trgm)
+CREATE INDEX IF NOT EXISTS items_name_trgm_idx ON items USING gin (lower(name) gin_trgm_ops) WHERE is_available;
+
+CREATE INDEX IF NOT EXISTS items_description_trgm_idx ON items USING gin (lower(description) gin_trgm_ops)
+    WHERE is_available;
@@ -10,9 +10,19 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import ru.practicum.shareit.booking.controller.BookingController;
+import ru.practicum.shareit.booking.dto.BookingApproveRequestDto;
+import ru.practicum.shareit.booking.dto.BookingApproveResultDto;
+import ru.practicum.shareit.booking.dto.BookingCursor;
 import ru.practicum.shareit.booking.dto.BookingRequestDto;
 import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.dto.BookingSummaryDto;
+import ru.practicum.shareit.booking.event.BookingEventDto;
+import ru.practicum.shareit.booking.event.BookingEventRegistry;
+import ru.practicum.shareit.booking.event.BookingEventType;
+import ru.practicum.shareit.booking.model.ApproveResult;
 import ru.practicum.shareit.booking.model.Status;
 import ru.practicum.shareit.booking.service.BookingService;
 import ru.practicum.shareit.exception.BadRequestException;
@@ -20,14 +30,21 @@ import ru.practicum.shareit.item.dto.ItemShortResponseDto;
 import ru.practicum.shareit.user.dto.UserDto;
 
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static ru.practicum.shareit.utils.Constants.HEADER;
+import static ru.practicum.shareit.utils.Constants.LAST_EVENT_ID_HEADER;
+import static ru.practicum.shareit.utils.Constants.NEXT_CURSOR_HEADER;
 
 @WebMvcTest(controllers = BookingController.class)
 @AutoConfigureMockMvc
@@ -154,4 +171,140 @@ public class BookingControllerTest {
                 .andDo(print());
         Mockito.verify(bookingService).getAllBookingsByOwnerId(1L, "ALL", 0, 10);
     }
+
+    @Test
+    void testGetAllBookingsByUserIdAfterCursor() throws Exception {
+        String after = BookingCursor.of(bookingResponseDto).encode();
+        Mockito
+                .when(bookingService.getAllBookingsByUserIdAfter(Mockito.anyLong(), Mockito.anyString(),
+                        Mockito.anyString(), Mockito.anyInt())).thenReturn(List.of(bookingResponseDto));
+        mvc.perform(get("/bookings")
+                        .header(HEADER, "1")
+                        .param("after", after)
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(NEXT_CURSOR_HEADER, after))
+                .andExpect(jsonPath("$[0].id").value(bookingResponseDto.getId()));
+        Mockito.verify(bookingService).getAllBookingsByUserIdAfter(1L, "ALL", after, 1);
+    }
+
+    @Test
+    void testApproveBookings() throws Exception {
+        BookingApproveRequestDto bookingApproveRequestDto = new BookingApproveRequestDto(List.of(1L, 2L), true);
+        Mockito
+                .when(bookingService.approveBookings(Mockito.anyLong(), Mockito.any(BookingApproveRequestDto.class)))
+                .thenReturn(List.of(new BookingApproveResultDto(1L, ApproveResult.UPDATED, Status.APPROVED),
+                        new BookingApproveResultDto(2L, ApproveResult.NOT_FOUND, null)));
+        mvc.perform(patch("/bookings/approve")
+                        .header(HEADER, "1")
+                        .content(objectMapper.writeValueAsString(bookingApproveRequestDto))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].result", is("UPDATED")))
+                .andExpect(jsonPath("$[0].status", is("APPROVED")))
+                .andExpect(jsonPath("$[1].result", is("NOT_FOUND")));
+        Mockito.verify(bookingService, Mockito.never()).updateBooking(Mockito.anyLong(), Mockito.anyLong(),
+                Mockito.anyBoolean());
+    }
+
+    @Test
+    void testCreateBookings() throws Exception {
+        Mockito
+                .when(bookingService.createBookings(Mockito.anyList(), Mockito.anyLong()))
+                .thenReturn(List.of(bookingResponseDto));
+        mvc.perform(post("/bookings/batch")
+                        .header(HEADER, "1")
+                        .content(objectMapper.writeValueAsString(List.of(bookingRequestDto)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$[0].id").value(bookingResponseDto.getId()));
+        Mockito.verify(bookingService).createBookings(Mockito.anyList(), Mockito.eq(1L));
+    }
+
+    @Test
+    void testGetBookingSummaryByOwnerId() throws Exception {
+        Mockito
+                .when(bookingService.getBookingSummaryByOwnerId(Mockito.anyLong()))
+                .thenReturn(new BookingSummaryDto(3L, 1L, 0L, 2L, 1L, 0L));
+        mvc.perform(get("/bookings/owner/summary")
+                        .header(HEADER, "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.all", is(3)))
+                .andExpect(jsonPath("$.future", is(2)))
+                .andExpect(jsonPath("$.waiting", is(1)));
+        Mockito.verify(bookingService).getBookingSummaryByOwnerId(1L);
+    }
+
+    @Test
+    void testSubscribeToOwnerEvents() throws Exception {
+        SseEmitter emitter = new SseEmitter();
+        Mockito
+                .when(bookingService.subscribeToOwnerEvents(Mockito.anyLong(), Mockito.any()))
+                .thenReturn(emitter);
+        MvcResult mvcResult = mvc.perform(get("/bookings/owner/events")
+                        .header(HEADER, "1")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        emitter.send(SseEmitter.event()
+                .id("1")
+                .name(BookingEventType.BOOKING_CREATED.getEventName())
+                .data("{}"));
+        emitter.complete();
+        mvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(content().string(containsString("event:booking-created")));
+        Mockito.verify(bookingService).subscribeToOwnerEvents(1L, null);
+    }
+
+    @Test
+    void testSubscribeToOwnerEventsReplaysAfterLastEventId() throws Exception {
+        BookingEventRegistry registry = new BookingEventRegistry(Duration.ofMinutes(1), 10, Duration.ofMinutes(5), 1);
+        registry.publish(1L, new BookingEventDto(BookingEventType.BOOKING_CREATED, 7L, 1L, null, Status.WAITING));
+        registry.publish(1L, new BookingEventDto(BookingEventType.BOOKING_STATUS_CHANGED, 7L, 1L, null,
+                Status.APPROVED));
+        Mockito
+                .when(bookingService.subscribeToOwnerEvents(Mockito.anyLong(), Mockito.any()))
+                .thenAnswer(invocation -> registry.subscribe(invocation.getArgument(0), invocation.getArgument(1)));
+        MvcResult mvcResult = mvc.perform(get("/bookings/owner/events")
+                        .header(HEADER, "1")
+                        .header(LAST_EVENT_ID_HEADER, "1")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        registry.publish(1L, new BookingEventDto(BookingEventType.BOOKING_CREATED, 8L, 1L, null, Status.WAITING));
+        String content = awaitContent(mvcResult, "id:3");
+        assertThat(content, not(containsString("id:1\n")));
+        assertThat(content.indexOf("id:2\nevent:booking-status-changed"), greaterThan(0));
+        assertThat(content.indexOf("id:3\nevent:booking-created"), greaterThan(content.indexOf("id:2")));
+        registry.shutdown();
+        Mockito.verify(bookingService).subscribeToOwnerEvents(1L, 1L);
+    }
+
+    @Test
+    void testExportBookingsByOwnerId() throws Exception {
+        Mockito
+                .when(bookingService.exportBookingsByOwnerId(Mockito.anyLong()))
+                .thenReturn(out -> out.write("{\"id\":1}\n{\"id\":2}\n".getBytes(StandardCharsets.UTF_8)));
+        MvcResult mvcResult = mvc.perform(get("/bookings/owner/export")
+                        .header(HEADER, "1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+        Mockito.verify(bookingService).exportBookingsByOwnerId(1L);
+    }
+
+    private static String awaitContent(MvcResult mvcResult, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        String content = mvcResult.getResponse().getContentAsString();
+        while (!content.contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            content = mvcResult.getResponse().getContentAsString();
+        }
+        return content;
+    }
 }
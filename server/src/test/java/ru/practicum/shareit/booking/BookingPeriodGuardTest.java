@@ -0,0 +1,139 @@
+package ru.practicum.shareit.booking;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.jdbc.datasource.init.ScriptException;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/*
+ * Проверка пересечений bookings из разных месячных секций на PostgreSQL. Схема приложения создаётся
+ * в отдельной базе booking_period_guard, которая удаляется после прогона. Без доступного PostgreSQL тест
+ * пропускается: mvn -pl server test -Dtest=BookingPeriodGuardTest [-Dpostgres.url=jdbc:postgresql://host:port/]
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class BookingPeriodGuardTest {
+    private static final String DATABASE = "booking_period_guard";
+    private static final String INSERT_BOOKING = "INSERT INTO bookings " +
+            "(start_date, end_date, item_id, booker_id, status, owner_id) VALUES (?, ?, 1, 2, ?, 1)";
+    private final LocalDateTime monthBoundary = LocalDate.now().withDayOfMonth(1).plusMonths(2).atStartOfDay();
+    private Connection connection;
+
+    @BeforeAll
+    void setUp() throws SQLException {
+        try {
+            createDatabase(DATABASE);
+        } catch (SQLException e) {
+            assumeTrue(false, "PostgreSQL недоступен: " + e.getMessage());
+        }
+        connection = connect(DATABASE);
+        ScriptUtils.executeSqlScript(connection, script("schema.sql"));
+        ScriptUtils.executeSqlScript(connection, script("schema-postgresql.sql"));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO users (id, name, email) VALUES (1, 'Owner', 'owner@mail.ru'), " +
+                    "(2, 'Booker', 'booker@mail.ru')");
+            statement.execute("INSERT INTO items (id, name, description, is_available, owner_id) " +
+                    "VALUES (1, 'Дрель', 'Ударная', TRUE, 1)");
+        }
+    }
+
+    @AfterAll
+    void tearDown() throws SQLException {
+        if (connection == null) {
+            return;
+        }
+        connection.close();
+        dropDatabase(DATABASE);
+    }
+
+    @Test
+    void testOverlapAcrossMonthPartitionsIsRejected() throws SQLException {
+        insertBooking(monthBoundary.minusDays(10), monthBoundary.plusDays(5), 2);
+        SQLException exception = assertThrows(SQLException.class, () ->
+                insertBooking(monthBoundary.minusDays(5), monthBoundary.minusDays(2), 1));
+        assertEquals("23P01", exception.getSQLState());
+        insertBooking(monthBoundary.minusDays(5), monthBoundary.minusDays(2), 3);
+        insertBooking(monthBoundary.plusDays(5), monthBoundary.plusDays(6), 1);
+        assertNotEquals(partitionOf(monthBoundary.plusDays(5)), partitionOf(monthBoundary.minusDays(2)));
+    }
+
+    @Test
+    void testMigrationWithOverlappingBookingsFailsStartup() throws SQLException {
+        String database = DATABASE + "_migration";
+        createDatabase(database);
+        try (Connection legacy = connect(database); Statement statement = legacy.createStatement()) {
+            ScriptUtils.executeSqlScript(legacy, script("schema.sql"));
+            statement.execute("INSERT INTO users (id, name, email) VALUES (1, 'Owner', 'owner@mail.ru'), " +
+                    "(2, 'Booker', 'booker@mail.ru')");
+            statement.execute("INSERT INTO items (id, name, description, is_available, owner_id) " +
+                    "VALUES (1, 'Дрель', 'Ударная', TRUE, 1)");
+            statement.execute("INSERT INTO bookings (id, start_date, end_date, item_id, booker_id, status, owner_id) " +
+                    "VALUES (1, '2030-01-01', '2030-01-10', 1, 2, 2, 1), (2, '2030-01-05', '2030-01-07', 1, 2, 1, 1)");
+            ScriptException exception = assertThrows(ScriptException.class, () ->
+                    ScriptUtils.executeSqlScript(legacy, script("schema-postgresql.sql")));
+            assertTrue(exception.getCause().getMessage().contains("1 и 2 (item 1)"));
+            try (ResultSet resultSet = statement.executeQuery(
+                    "SELECT relkind FROM pg_class WHERE oid = 'bookings'::regclass")) {
+                assertTrue(resultSet.next());
+                assertEquals("r", resultSet.getString(1));
+            }
+        } finally {
+            dropDatabase(database);
+        }
+    }
+
+    private static void createDatabase(String database) throws SQLException {
+        try (Connection admin = connect("postgres"); Statement statement = admin.createStatement()) {
+            statement.execute("DROP DATABASE IF EXISTS " + database);
+            statement.execute("CREATE DATABASE " + database);
+        }
+    }
+
+    private static void dropDatabase(String database) throws SQLException {
+        try (Connection admin = connect("postgres"); Statement statement = admin.createStatement()) {
+            statement.execute("DROP DATABASE IF EXISTS " + database);
+        }
+    }
+
+    private static EncodedResource script(String path) {
+        return new EncodedResource(new ClassPathResource(path), StandardCharsets.UTF_8);
+    }
+
+    private static Connection connect(String database) throws SQLException {
+        return DriverManager.getConnection(
+                System.getProperty("postgres.url", "jdbc:postgresql://localhost:5432/") + database,
+                System.getProperty("postgres.user", "root"),
+                System.getProperty("postgres.password", "root"));
+    }
+
+    private void insertBooking(LocalDateTime start, LocalDateTime end, int status) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_BOOKING)) {
+            statement.setObject(1, start);
+            statement.setObject(2, end);
+            statement.setInt(3, status);
+            statement.executeUpdate();
+        }
+    }
+
+    private String partitionOf(LocalDateTime end) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT tableoid::regclass::TEXT FROM bookings WHERE end_date = ?")) {
+            statement.setObject(1, end);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                assertTrue(resultSet.next());
+                return resultSet.getString(1);
+            }
+        }
+    }
+}
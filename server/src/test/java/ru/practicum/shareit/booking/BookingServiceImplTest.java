@@ -10,14 +10,23 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.DirtiesContext;
+import ru.practicum.shareit.booking.dto.BookingApproveRequestDto;
+import ru.practicum.shareit.booking.dto.BookingApproveResultDto;
+import ru.practicum.shareit.booking.dto.BookingCursor;
 import ru.practicum.shareit.booking.dto.BookingRequestDto;
 import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.dto.BookingSummaryDto;
+import ru.practicum.shareit.booking.event.BookingEventRegistry;
+import ru.practicum.shareit.booking.export.BookingExporter;
+import ru.practicum.shareit.booking.index.BookingIntervalIndex;
+import ru.practicum.shareit.booking.model.ApproveResult;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.Status;
 import ru.practicum.shareit.booking.repository.BookingRepository;
 import ru.practicum.shareit.booking.service.BookingService;
 import ru.practicum.shareit.booking.service.BookingServiceImpl;
 import ru.practicum.shareit.exception.BadRequestException;
+import ru.practicum.shareit.exception.ConflictException;
 import ru.practicum.shareit.exception.ObjectNotFoundException;
 import ru.practicum.shareit.item.dto.ItemRequestDto;
 import ru.practicum.shareit.item.model.Item;
@@ -29,11 +38,16 @@ import ru.practicum.shareit.user.service.UserService;
 
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -48,15 +62,21 @@ public class BookingServiceImplTest {
     private final UserService userService;
     private final BookingService bookingService;
     private final ItemService itemService;
+    private final BookingEventRegistry bookingEventRegistry;
+    private final BookingIntervalIndex bookingIntervalIndex;
     @InjectMocks
     BookingServiceImpl bookingServiceImpl;
     @Mock
     UserRepository userRepository;
     @Mock
     BookingRepository bookingRepository;
+    @Mock
+    BookingEventRegistry eventRegistry;
+    @Mock
+    BookingExporter bookingExporter;
     private BookingRequestDto bookingRequestDto;
-    private final LocalDateTime time1 = LocalDateTime.of(2023, 11, 15, 13, 25);
-    private final LocalDateTime time2 = LocalDateTime.of(2023, 12, 15, 13, 25);
+    private final LocalDateTime time1 = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.MINUTES);
+    private final LocalDateTime time2 = time1.plusMonths(1);
 
     @BeforeEach
     void setUp() {
@@ -99,6 +119,7 @@ public class BookingServiceImplTest {
         assertThat(booking.getEnd(), equalTo(time2));
         assertThat(booking.getItem().getId(), equalTo(1L));
         assertThat(booking.getStatus(), equalTo(Status.WAITING));
+        assertThat(booking.getOwnerId(), equalTo(1L));
     }
 
     @Test
@@ -137,6 +158,50 @@ public class BookingServiceImplTest {
         assertThat(exception.getMessage(), equalTo("Start time не может быть равным End time"));
     }
 
+    @Test
+    void testCreateBookingOverlap() {
+        userService.createUserDto(UserDto.builder().id(3L).name("Name3").email("some3@email.ru").build());
+        bookingService.createBooking(bookingRequestDto, 2L);
+        bookingRequestDto.setStart(time1.plusDays(3));
+        bookingRequestDto.setEnd(time2.plusDays(3));
+        ConflictException exception = assertThrows(ConflictException.class, () ->
+                bookingService.createBooking(bookingRequestDto, 3L));
+        assertThat(exception.getMessage(), equalTo("Item с id: 1 уже забронирован на это время (booking с id: 1)"));
+    }
+
+    @Test
+    void testCreateBookingAfterRejectedOverlap() {
+        userService.createUserDto(UserDto.builder().id(3L).name("Name3").email("some3@email.ru").build());
+        bookingService.createBooking(bookingRequestDto, 2L);
+        bookingService.updateBooking(1L, 1L, false);
+        BookingResponseDto booking = bookingService.createBooking(bookingRequestDto, 3L);
+        assertThat(booking.getStatus(), equalTo(Status.WAITING));
+    }
+
+    @Test
+    void testCreateBookingIgnoresStaleIndexEntry() {
+        bookingIntervalIndex.add(1L, 99L, time1, time2);
+        BookingResponseDto booking = bookingService.createBooking(bookingRequestDto, 2L);
+        assertThat(booking.getStatus(), equalTo(Status.WAITING));
+        assertThat(bookingIntervalIndex.findOverlap(1L, time1, time2), equalTo(Optional.of(booking.getId())));
+    }
+
+    @Test
+    void testPruneEndedIntervals() {
+        bookingIntervalIndex.add(1L, 99L, time1, time2);
+        assertThat(bookingIntervalIndex.prune(time2), equalTo(1));
+        assertThat(bookingIntervalIndex.findOverlap(1L, time1, time2), equalTo(Optional.empty()));
+    }
+
+    @Test
+    void testCreateBookingAdjacentInterval() {
+        bookingService.createBooking(bookingRequestDto, 2L);
+        bookingRequestDto.setStart(time2);
+        bookingRequestDto.setEnd(time2.plusDays(1));
+        BookingResponseDto booking = bookingService.createBooking(bookingRequestDto, 2L);
+        assertThat(booking.getId(), equalTo(2L));
+    }
+
     @Test
     void testUpdateBooking() {
         User user = new User(1L, "Name", "some@email.ru");
@@ -144,16 +209,133 @@ public class BookingServiceImplTest {
         Item item = new Item(1L, "Серп", "Часть чего то важного", true, user, 1L);
         Booking booking = new Booking(1L,
                 LocalDateTime.of(2023, 3, 2, 4, 13),
-                LocalDateTime.of(2023, 3, 12, 4, 13), item, user2, Status.APPROVED);
+                LocalDateTime.of(2023, 3, 12, 4, 13), item, user2, Status.APPROVED, user.getId(), 0L);
         booking.setBooker(user2);
         booking.setStatus(Status.WAITING);
         booking.getItem().setOwner(user);
         Mockito.when(bookingRepository.findById(Mockito.anyLong())).thenReturn(Optional.of(booking));
-        Mockito.when(userRepository.existsById(Mockito.anyLong())).thenReturn(true);
-        bookingServiceImpl.updateBooking(booking.getItem().getOwner().getId(), booking.getId(), true);
-        assertEquals(Status.APPROVED, booking.getStatus());
+        Mockito.when(bookingRepository.updateWaitingStatus(1L, 0L, Status.APPROVED)).thenReturn(1);
+        BookingResponseDto bookingResponseDto = bookingServiceImpl.updateBooking(
+                booking.getItem().getOwner().getId(), booking.getId(), true);
+        assertEquals(Status.APPROVED, bookingResponseDto.getStatus());
         Mockito.verify(bookingRepository, times(1)).findById(1L);
-        Mockito.verify(userRepository, times(1)).existsById(1L);
+        Mockito.verify(bookingRepository, times(1)).updateWaitingStatus(1L, 0L, Status.APPROVED);
+        Mockito.verify(bookingRepository, Mockito.never()).save(Mockito.any(Booking.class));
+        Mockito.verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void testUpdateBookingConcurrentConflict() {
+        User user = new User(1L, "Name", "some@email.ru");
+        User user2 = new User(2L, "User", "user@emai.ru");
+        Item item = new Item(1L, "Серп", "Часть чего то важного", true, user, 1L);
+        Booking booking = new Booking(1L, time1, time2, item, user2, Status.WAITING, user.getId(), 0L);
+        Mockito.when(bookingRepository.findById(Mockito.anyLong())).thenReturn(Optional.of(booking));
+        Mockito.when(bookingRepository.updateWaitingStatus(1L, 0L, Status.REJECTED)).thenReturn(0);
+        ConflictException exception = assertThrows(ConflictException.class, () ->
+                bookingServiceImpl.updateBooking(1L, 1L, false));
+        assertEquals("Booking с id: 1 уже изменен другим запросом", exception.getMessage());
+    }
+
+    @Test
+    void testUpdateBookingAlreadyProcessed() {
+        bookingService.createBooking(bookingRequestDto, 2L);
+        bookingService.updateBooking(1L, 1L, true);
+        BadRequestException exception = assertThrows(BadRequestException.class, () ->
+                bookingService.updateBooking(1L, 1L, false));
+        assertThat(exception.getMessage(), equalTo("Не позволено изменять Status"));
+        assertThat(bookingService.getBookingById(1L, 1L).getStatus(), equalTo(Status.APPROVED));
+    }
+
+    @Test
+    void testApproveBookings() {
+        bookingService.createBooking(bookingRequestDto, 2L);
+        bookingRequestDto.setStart(time2);
+        bookingRequestDto.setEnd(time2.plusDays(1));
+        bookingService.createBooking(bookingRequestDto, 2L);
+        bookingService.updateBooking(1L, 2L, false);
+        List<BookingApproveResultDto> results = bookingService.approveBookings(1L,
+                new BookingApproveRequestDto(List.of(1L, 2L, 99L), true));
+        assertThat(results.size(), equalTo(3));
+        assertThat(results.get(0).getResult(), equalTo(ApproveResult.UPDATED));
+        assertThat(results.get(0).getStatus(), equalTo(Status.APPROVED));
+        assertThat(results.get(1).getResult(), equalTo(ApproveResult.ALREADY_PROCESSED));
+        assertThat(results.get(1).getStatus(), equalTo(Status.REJECTED));
+        assertThat(results.get(2).getResult(), equalTo(ApproveResult.NOT_FOUND));
+        assertThat(bookingService.getBookingById(1L, 1L).getStatus(), equalTo(Status.APPROVED));
+    }
+
+    @Test
+    void testApproveBookingsNotOwner() {
+        bookingService.createBooking(bookingRequestDto, 2L);
+        List<BookingApproveResultDto> results = bookingService.approveBookings(2L,
+                new BookingApproveRequestDto(List.of(1L), false));
+        assertThat(results.get(0).getResult(), equalTo(ApproveResult.NOT_OWNER));
+        assertThat(bookingService.getBookingById(2L, 1L).getStatus(), equalTo(Status.WAITING));
+    }
+
+    @Test
+    void testCreateBookings() {
+        BookingRequestDto second = BookingRequestDto.builder()
+                .itemId(1L)
+                .start(time2)
+                .end(time2.plusDays(1))
+                .build();
+        List<BookingResponseDto> bookings = bookingService.createBookings(List.of(bookingRequestDto, second), 2L);
+        assertThat(bookings.size(), equalTo(2));
+        assertThat(bookings.get(0).getId(), equalTo(1L));
+        assertThat(bookings.get(1).getId(), equalTo(2L));
+        assertThat(bookings.get(1).getStatus(), equalTo(Status.WAITING));
+        List<BookingResponseDto> stored = bookingService.getAllBookingsByOwnerId(1L, "ALL", 0, 10);
+        assertThat(stored.size(), equalTo(2));
+        assertThat(stored.get(0).getItem().getName(), equalTo("Item"));
+        ConflictException exception = assertThrows(ConflictException.class, () ->
+                bookingService.createBooking(second, 2L));
+        assertThat(exception.getMessage(), equalTo("Item с id: 1 уже забронирован на это время (booking с id: 2)"));
+    }
+
+    @Test
+    void testCreateBookingsAllOrNothing() {
+        BookingRequestDto missingItem = BookingRequestDto.builder()
+                .itemId(99L)
+                .start(time2)
+                .end(time2.plusDays(1))
+                .build();
+        ObjectNotFoundException exception = assertThrows(ObjectNotFoundException.class, () ->
+                bookingService.createBookings(List.of(bookingRequestDto, missingItem), 2L));
+        assertThat(exception.getMessage(), equalTo("Item с id: 99 не найден"));
+        assertThat(bookingService.getAllBookingsByUserId(2L, "ALL", 0, 10).size(), equalTo(0));
+    }
+
+    @Test
+    void testCreateBookingsOverlapInBatch() {
+        BookingRequestDto overlapping = BookingRequestDto.builder()
+                .itemId(1L)
+                .start(time1.plusDays(1))
+                .end(time2.plusDays(1))
+                .build();
+        ConflictException exception = assertThrows(ConflictException.class, () ->
+                bookingService.createBookings(List.of(bookingRequestDto, overlapping), 2L));
+        assertThat(exception.getMessage(), equalTo("Бронирования в пакете пересекаются для item с id: 1"));
+        assertThat(bookingService.getAllBookingsByUserId(2L, "ALL", 0, 10).size(), equalTo(0));
+    }
+
+    @Test
+    void testExpireWaitingBookings() {
+        bookingService.createBooking(bookingRequestDto, 2L);
+        BookingRequestDto second = BookingRequestDto.builder()
+                .itemId(1L)
+                .start(time2)
+                .end(time2.plusDays(1))
+                .build();
+        bookingService.createBooking(second, 2L);
+        assertThat(bookingService.expireWaitingBookings(time1, 10), equalTo(0));
+        assertThat(bookingService.expireWaitingBookings(time2.plusHours(1), 1), equalTo(1));
+        assertThat(bookingService.expireWaitingBookings(time2.plusHours(1), 1), equalTo(1));
+        assertThat(bookingService.expireWaitingBookings(time2.plusHours(1), 1), equalTo(0));
+        assertThat(bookingService.getBookingById(2L, 1L).getStatus(), equalTo(Status.CANCELED));
+        assertThat(bookingService.getBookingById(2L, 2L).getStatus(), equalTo(Status.CANCELED));
+        assertThat(bookingService.createBooking(second, 2L).getId(), equalTo(3L));
     }
 
     @Test
@@ -170,13 +352,13 @@ public class BookingServiceImplTest {
         Item item = new Item(1L, "Серп", "Часть чего то важного", true, user, 1L);
         Booking booking = new Booking(1L,
                 LocalDateTime.of(2023, 3, 2, 4, 13),
-                LocalDateTime.of(2023, 3, 12, 4, 13), item, user2, Status.APPROVED);
+                LocalDateTime.of(2023, 3, 12, 4, 13), item, user2, Status.APPROVED, user.getId(), 0L);
         booking.setStatus(Status.WAITING);
         Mockito.when(bookingRepository.findById(Mockito.anyLong())).thenReturn(Optional.of(booking));
         Mockito.when(userRepository.existsById(Mockito.anyLong())).thenReturn(false);
         ObjectNotFoundException exception = assertThrows(ObjectNotFoundException.class, () ->
-                bookingServiceImpl.updateBooking(1L, 1L, true));
-        assertEquals("User с id: 1 не найден", exception.getMessage());
+                bookingServiceImpl.updateBooking(3L, 1L, true));
+        assertEquals("User с id: 3 не найден", exception.getMessage());
     }
 
     @Test
@@ -287,6 +469,48 @@ public class BookingServiceImplTest {
         assertThat(bookingList5.size(), equalTo(0));
     }
 
+    @Test
+    void testGetAllBookingsAfterCursor() {
+        for (int i = 0; i < 3; i++) {
+            bookingRequestDto.setStart(time2.plusDays(i));
+            bookingRequestDto.setEnd(time2.plusDays(i).plusHours(1));
+            bookingService.createBooking(bookingRequestDto, 2L);
+        }
+        List<BookingResponseDto> firstPage = bookingService.getAllBookingsByUserId(2L, "ALL", 0, 2);
+        assertThat(firstPage.size(), equalTo(2));
+        assertThat(firstPage.get(0).getId(), equalTo(3L));
+        assertThat(firstPage.get(1).getId(), equalTo(2L));
+
+        String after = BookingCursor.of(firstPage.get(1)).encode();
+        List<BookingResponseDto> secondPage = bookingService.getAllBookingsByUserIdAfter(2L, "ALL", after, 2);
+        assertThat(secondPage.size(), equalTo(1));
+        assertThat(secondPage.get(0).getId(), equalTo(1L));
+
+        List<BookingResponseDto> ownerPage = bookingService.getAllBookingsByOwnerIdAfter(1L, "FUTURE", after, 2);
+        assertThat(ownerPage.size(), equalTo(1));
+        assertThat(ownerPage.get(0).getId(), equalTo(1L));
+    }
+
+    @Test
+    void testGetAllBookingsAfterCursorError() {
+        BadRequestException exception = assertThrows(BadRequestException.class, () ->
+                bookingService.getAllBookingsByUserIdAfter(2L, "ALL", "abc", 2));
+        assertThat(exception.getMessage(), equalTo("Некорректный курсор: abc"));
+    }
+
+    @Test
+    void testGetBookingSummary() {
+        bookingService.createBooking(bookingRequestDto, 2L);
+        bookingRequestDto.setStart(time2);
+        bookingRequestDto.setEnd(time2.plusDays(1));
+        bookingService.createBooking(bookingRequestDto, 2L);
+        bookingService.updateBooking(1L, 2L, false);
+        BookingSummaryDto expected = new BookingSummaryDto(2L, 0L, 0L, 2L, 1L, 1L);
+        assertThat(bookingService.getBookingSummaryByUserId(2L), equalTo(expected));
+        assertThat(bookingService.getBookingSummaryByOwnerId(1L), equalTo(expected));
+        assertThat(bookingService.getBookingSummaryByOwnerId(2L), equalTo(new BookingSummaryDto(0L, 0L, 0L, 0L, 0L, 0L)));
+    }
+
     @Test
     void testGetAllByOwnerUserNOtFound() {
         ObjectNotFoundException exception = assertThrows(ObjectNotFoundException.class, () ->
@@ -301,4 +525,43 @@ public class BookingServiceImplTest {
                 bookingService.getAllBookingsByOwnerId(2L, "CURREN", 0, 2));
         assertThat(exception.getMessage(), equalTo("Unknown state: CURREN"));
     }
+
+    @Test
+    void testSubscribeToOwnerEvents() {
+        bookingService.subscribeToOwnerEvents(1L, null);
+        bookingService.createBooking(bookingRequestDto, 2L);
+        assertThat(bookingEventRegistry.subscriberCount(1L), equalTo(1));
+        assertThat(bookingEventRegistry.subscriberCount(2L), equalTo(0));
+    }
+
+    @Test
+    void testSubscribeToOwnerEventsUserNotFound() {
+        ObjectNotFoundException exception = assertThrows(ObjectNotFoundException.class, () ->
+                bookingService.subscribeToOwnerEvents(3L, null));
+        assertThat(exception.getMessage(), equalTo("User с id: 3 не найден"));
+    }
+
+    @Test
+    void testExportBookings() throws IOException {
+        bookingService.createBooking(bookingRequestDto, 2L);
+        bookingRequestDto.setStart(time2);
+        bookingRequestDto.setEnd(time2.plusDays(1));
+        bookingService.createBooking(bookingRequestDto, 2L);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bookingService.exportBookingsByOwnerId(1L).writeTo(out);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines.length, equalTo(2));
+        assertThat(lines[0], containsString("\"id\":2"));
+        assertThat(lines[1], containsString("\"id\":1"));
+        out.reset();
+        bookingService.exportBookingsByUserId(1L).writeTo(out);
+        assertThat(out.size(), equalTo(0));
+    }
+
+    @Test
+    void testExportBookingsUserNotFound() {
+        ObjectNotFoundException exception = assertThrows(ObjectNotFoundException.class, () ->
+                bookingService.exportBookingsByUserId(3L));
+        assertThat(exception.getMessage(), equalTo("User с id: 3 не найден"));
+    }
 }
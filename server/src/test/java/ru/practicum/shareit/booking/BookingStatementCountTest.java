@@ -0,0 +1,79 @@
+package ru.practicum.shareit.booking;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.practicum.shareit.booking.dto.BookingRequestDto;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.item.dto.ItemRequestDto;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.service.UserService;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class BookingStatementCountTest {
+    private static final int PAGE_SIZE = 10;
+    private final EntityManagerFactory entityManagerFactory;
+    private final UserService userService;
+    private final ItemService itemService;
+    private final BookingService bookingService;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        userService.createUserDto(UserDto.builder().name("Owner").email("owner@email.ru").build());
+        LocalDateTime start = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.MINUTES);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            UserDto booker = userService.createUserDto(UserDto.builder()
+                    .name("Booker" + i)
+                    .email("booker" + i + "@email.ru")
+                    .build());
+            Long itemId = itemService.createItemDto(ItemRequestDto.builder()
+                    .name("Item" + i)
+                    .description("Description" + i)
+                    .available(true)
+                    .build(), 1L).getId();
+            bookingService.createBooking(BookingRequestDto.builder()
+                    .itemId(itemId)
+                    .start(start.plusDays(i))
+                    .end(start.plusDays(i).plusHours(1))
+                    .build(), booker.getId());
+        }
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @Test
+    void testOwnerBookingsPageLoadsInSingleSelect() {
+        List<BookingResponseDto> bookings = bookingService.getAllBookingsByOwnerId(1L, "ALL", 0, PAGE_SIZE);
+        assertThat(bookings.size(), equalTo(PAGE_SIZE));
+        // existsById для owner + один select страницы вместе с item и booker
+        assertThat(statistics.getPrepareStatementCount(), equalTo(2L));
+    }
+
+    @Test
+    void testBookerBookingsPageLoadsInSingleSelect() {
+        List<BookingResponseDto> bookings = bookingService.getAllBookingsByUserId(2L, "FUTURE", 0, PAGE_SIZE);
+        assertThat(bookings.size(), equalTo(1));
+        assertThat(statistics.getPrepareStatementCount(), equalTo(2L));
+    }
+}
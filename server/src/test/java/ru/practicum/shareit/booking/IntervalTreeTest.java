@@ -0,0 +1,75 @@
+package ru.practicum.shareit.booking;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.booking.index.IntervalTree;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IntervalTreeTest {
+    private final LocalDateTime base = LocalDateTime.of(2030, 1, 1, 0, 0);
+    private IntervalTree tree;
+
+    @BeforeEach
+    void setUp() {
+        tree = new IntervalTree();
+    }
+
+    @Test
+    void testFindOverlap() {
+        tree.insert(1L, base, base.plusDays(2));
+        tree.insert(2L, base.plusDays(5), base.plusDays(7));
+        assertEquals(Optional.of(1L), tree.findOverlap(base.plusDays(1), base.plusDays(3)));
+        assertEquals(Optional.of(2L), tree.findOverlap(base.plusDays(6), base.plusDays(6).plusHours(1)));
+        assertEquals(Optional.empty(), tree.findOverlap(base.plusDays(2), base.plusDays(5)));
+        assertEquals(Optional.empty(), tree.findOverlap(base.minusDays(1), base));
+    }
+
+    @Test
+    void testRemoveEndedBefore() {
+        for (long i = 1; i <= 20; i++) {
+            tree.insert(i, base.plusDays(i), base.plusDays(i + 1));
+        }
+        assertEquals(10, tree.removeEndedBefore(base.plusDays(11)));
+        assertEquals(10, tree.size());
+        assertEquals(Optional.empty(), tree.findOverlap(base, base.plusDays(11)));
+        assertEquals(Optional.of(11L), tree.findOverlap(base, base.plusDays(11).plusHours(1)));
+        assertEquals(0, tree.removeEndedBefore(base));
+    }
+
+    @Test
+    void testFindOverlapWithNestedIntervals() {
+        tree.insert(1L, base, base.plusDays(30));
+        for (long i = 2; i < 100; i++) {
+            tree.insert(i, base.plusHours(i), base.plusHours(i).plusMinutes(30));
+        }
+        assertEquals(Optional.of(1L), tree.findOverlap(base.plusDays(20), base.plusDays(21)));
+        assertEquals(Optional.empty(), tree.findOverlap(base.plusDays(30), base.plusDays(31)));
+    }
+
+    @Test
+    void testRemove() {
+        for (long i = 1; i <= 1000; i++) {
+            tree.insert(i, base.plusDays(i), base.plusDays(i).plusHours(12));
+        }
+        assertEquals(1000, tree.size());
+        for (long i = 1; i <= 1000; i += 2) {
+            assertTrue(tree.remove(i, base.plusDays(i)));
+        }
+        assertFalse(tree.remove(1L, base.plusDays(1)));
+        assertEquals(500, tree.size());
+        assertEquals(Optional.empty(), tree.findOverlap(base.plusDays(1), base.plusDays(1).plusHours(1)));
+        assertEquals(Optional.of(2L), tree.findOverlap(base.plusDays(2), base.plusDays(2).plusHours(1)));
+    }
+
+    @Test
+    void testRemoveLastInterval() {
+        tree.insert(1L, base, base.plusDays(1));
+        assertTrue(tree.remove(1L, base));
+        assertTrue(tree.isEmpty());
+        assertEquals(Optional.empty(), tree.findOverlap(base, base.plusDays(1)));
+    }
+}
@@ -0,0 +1,54 @@
+package ru.practicum.shareit.booking;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.booking.lock.ItemLockManager;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ItemLockManagerTest {
+    private SimpleMeterRegistry registry;
+    private ItemLockManager itemLockManager;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        itemLockManager = new ItemLockManager(64, registry);
+    }
+
+    @Test
+    void testSameItemIsSerialized() throws Exception {
+        ItemLockManager.StripeLock lock = itemLockManager.lock(List.of(1L));
+        CompletableFuture<Void> second = CompletableFuture.runAsync(() -> itemLockManager.lock(List.of(1L)).close());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (registry.get("shareit.booking.lock.queued").gauge().value() < 1
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(second.isDone());
+        lock.close();
+        second.get(5, TimeUnit.SECONDS);
+        assertEquals(1.0, registry.get("shareit.booking.lock.contended").counter().count());
+        assertEquals(1, registry.get("shareit.booking.lock.wait").timer().count());
+    }
+
+    @Test
+    void testDifferentItemsRunInParallel() throws Exception {
+        try (ItemLockManager.StripeLock ignored = itemLockManager.lock(List.of(1L))) {
+            CompletableFuture.runAsync(() -> itemLockManager.lock(List.of(2L)).close()).get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(0.0, registry.get("shareit.booking.lock.contended").counter().count());
+    }
+
+    @Test
+    void testLockSeveralItemsOnce() throws Exception {
+        itemLockManager.lock(List.of(2L, 1L, 2L)).close();
+        assertEquals(2.0, registry.get("shareit.booking.lock.acquisitions").counter().count());
+        CompletableFuture.runAsync(() -> itemLockManager.lock(List.of(1L, 2L)).close()).get(5, TimeUnit.SECONDS);
+    }
+}
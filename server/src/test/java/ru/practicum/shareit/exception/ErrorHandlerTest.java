@@ -2,8 +2,11 @@ package ru.practicum.shareit.exception;
 
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.sql.SQLException;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @SpringBootTest
@@ -17,6 +20,31 @@ public class ErrorHandlerTest {
         assertEquals(exception.getMessage(), response.getError());
     }
 
+    @Test
+    void testConflictException() {
+        ConflictException exception = new ConflictException("Item уже забронирован на это время");
+        ErrorResponse response = errorHandler.handleConflictException(exception);
+        assertEquals(exception.getMessage(), response.getError());
+    }
+
+    @Test
+    void testBookingOverlapConstraintViolation() {
+        DataIntegrityViolationException exception = new DataIntegrityViolationException("could not execute statement",
+                new SQLException("ERROR: conflicting key value violates exclusion constraint "
+                        + "\"bookings_2030_01_period_excl\"", "23P01"));
+        ErrorResponse response = errorHandler.handleDataIntegrityViolationException(exception);
+        assertEquals("Item уже забронирован на это время", response.getError());
+    }
+
+    @Test
+    void testOtherConstraintViolationHidesDriverMessage() {
+        DataIntegrityViolationException exception = new DataIntegrityViolationException("could not execute statement",
+                new SQLException("ERROR: insert or update on table \"bookings\" violates foreign key constraint "
+                        + "\"bookings_item_id_fkey\"", "23503"));
+        ErrorResponse response = errorHandler.handleDataIntegrityViolationException(exception);
+        assertEquals("Нарушено ограничение целостности данных", response.getError());
+    }
+
     @Test
     void testObjectNotFoundException() {
         ObjectNotFoundException exception = new ObjectNotFoundException("Объект не найден");
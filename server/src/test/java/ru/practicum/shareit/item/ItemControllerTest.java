@@ -12,13 +12,17 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.practicum.shareit.item.controller.ItemController;
 import ru.practicum.shareit.item.dto.*;
+import ru.practicum.shareit.item.search.ItemSearchMode;
+import ru.practicum.shareit.item.search.ItemSearchSort;
 import ru.practicum.shareit.item.service.ItemService;
 
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.List;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static ru.practicum.shareit.utils.Constants.HEADER;
 
@@ -115,8 +119,8 @@ public class ItemControllerTest {
     void testSearchItems() throws Exception {
         String text = "text";
         Mockito
-                .when(itemService.searchItemsDto(Mockito.anyString(), Mockito.anyLong(), Mockito.anyInt(),
-                        Mockito.anyInt())).thenReturn(new ArrayList<>());
+                .when(itemService.searchItemsDto(Mockito.anyString(), Mockito.anyLong(), Mockito.any(),
+                        Mockito.any(), Mockito.anyInt(), Mockito.anyInt())).thenReturn(new ArrayList<>());
         mvc.perform(get("/items/search?text=text")
                         .contentType(MediaType.APPLICATION_JSON)
                         .header(HEADER, 1L)
@@ -124,7 +128,48 @@ public class ItemControllerTest {
                         .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andDo(print());
-        Mockito.verify(itemService).searchItemsDto(text, 1L, 0, 10);
+        Mockito.verify(itemService).searchItemsDto(text, 1L, null, null, 0, 10);
+    }
+
+    @Test
+    void testSearchItemsWithMode() throws Exception {
+        Mockito
+                .when(itemService.searchItemsDto(Mockito.anyString(), Mockito.anyLong(), Mockito.any(),
+                        Mockito.any(), Mockito.anyInt(), Mockito.anyInt())).thenReturn(new ArrayList<>());
+        mvc.perform(get("/items/search")
+                        .param("text", "bosch 2")
+                        .param("mode", "TRGM")
+                        .param("sort", "RELEVANCE")
+                        .header(HEADER, 1L)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+        Mockito.verify(itemService).searchItemsDto("bosch 2", 1L, ItemSearchMode.TRGM, ItemSearchSort.RELEVANCE,
+                0, 10);
+    }
+
+    @Test
+    void testRebuildSearchIndex() throws Exception {
+        Mockito
+                .when(itemService.rebuildSearchIndex())
+                .thenReturn(ItemSearchIndexStatsDto.builder().items(3).build());
+        mvc.perform(post("/items/search/index")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items").value(3));
+    }
+
+    @Test
+    void testSuggestItemNames() throws Exception {
+        Mockito
+                .when(itemService.suggestItemNames("дре", 5))
+                .thenReturn(List.of(new ItemSuggestionDto("Дрель", 2)));
+        mvc.perform(get("/items/suggest")
+                        .param("prefix", "дре")
+                        .param("limit", "5")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Дрель"))
+                .andExpect(jsonPath("$[0].items").value(2));
     }
 
     @Test
@@ -0,0 +1,155 @@
+package ru.practicum.shareit.item;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.sql.*;
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/*
+ * Сравнение LIKE-поиска (getAvailableItemByText) с триграммным (getAvailableItemBySimilarity) на PostgreSQL.
+ * В обычную сборку не входит, запуск:
+ * mvn -pl server test -Dtest=ItemSearchBenchmark -Dbenchmark.items=1000000 [-Dbenchmark.url=jdbc:postgresql://...]
+ * Данные создаются в отдельной схеме item_search_benchmark и удаляются после прогона.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ItemSearchBenchmark {
+    private static final String SCHEMA = "item_search_benchmark";
+    private static final int WARMUP = 3;
+    private static final int RUNS = 15;
+    private static final int PAGE_SIZE = 10;
+    private static final String LIKE_QUERY = "SELECT id FROM items " +
+            "WHERE is_available = TRUE " +
+            "AND (upper(name) LIKE upper('%' || ? || '%') OR upper(description) LIKE upper('%' || ? || '%')) " +
+            "LIMIT " + PAGE_SIZE;
+    private static final int CANDIDATES = 1000;
+    private static final String TRGM_QUERY = "SELECT id FROM (SELECT m.*, " +
+            "(row_number() OVER (ORDER BY m.id) - 1) / " + CANDIDATES + " AS block " +
+            "FROM (SELECT id, name, description FROM items " +
+            "WHERE is_available " +
+            "AND (lower(name) LIKE '%' || lower(?) || '%' OR lower(description) LIKE '%' || lower(?) || '%') " +
+            "ORDER BY id + 0 " +
+            "LIMIT ?) AS m) AS c " +
+            "ORDER BY block, GREATEST(word_similarity(lower(?), lower(name)), word_similarity(lower(?), " +
+            "lower(description))) DESC, id " +
+            "LIMIT ? OFFSET ?";
+    /*
+     * Точный порядок по сходству среди всех совпадений
+     */
+    private static final String SIMILARITY_QUERY = "SELECT id FROM items " +
+            "WHERE is_available " +
+            "AND (lower(name) LIKE '%' || lower(?) || '%' OR lower(description) LIKE '%' || lower(?) || '%') " +
+            "ORDER BY GREATEST(word_similarity(lower(?), lower(name)), word_similarity(lower(?), " +
+            "lower(description))) DESC, id " +
+            "LIMIT " + PAGE_SIZE;
+    private Connection connection;
+
+    @BeforeAll
+    void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("benchmark.url", "jdbc:postgresql://localhost:5432/shareit"),
+                System.getProperty("benchmark.user", "root"),
+                System.getProperty("benchmark.password", "root"));
+        int items = Integer.getInteger("benchmark.items", 1_000_000);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+            statement.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+            statement.execute("CREATE SCHEMA " + SCHEMA);
+            statement.execute("SET search_path TO " + SCHEMA + ", public");
+            statement.execute("CREATE TABLE items (id BIGINT PRIMARY KEY, name VARCHAR(250) NOT NULL, " +
+                    "description VARCHAR(500) NOT NULL, is_available BOOLEAN NOT NULL)");
+            statement.execute("INSERT INTO items " +
+                    "SELECT g, " +
+                    "(ARRAY['drel', 'perforator', 'shurupovert', 'palatka', 'velosiped', 'lobzik', 'pila', " +
+                    "'stremyanka'])[g % 8 + 1] || ' ' || " +
+                    "(ARRAY['bosch', 'makita', 'dewalt', 'interskol', 'zubr', 'stels', 'forward', 'trek', " +
+                    "'tramp', 'nova tour', 'hilti'])[g % 11 + 1] || ' ' || (g * 7919 % 5000), " +
+                    "'model ' || upper(md5(g::TEXT)::VARCHAR(6)) || '-' || (g * 104729 % 100000) || ', ' || " +
+                    "'sostoyanie ' || (ARRAY['novoe', 'horoshee', 'rabochee'])[g % 3 + 1], " +
+                    "g % 10 <> 0 " +
+                    "FROM generate_series(1::BIGINT, " + items + ") AS g");
+            statement.execute("CREATE INDEX ON items USING gin (lower(name) gin_trgm_ops) WHERE is_available");
+            statement.execute("CREATE INDEX ON items USING gin (lower(description) gin_trgm_ops) " +
+                    "WHERE is_available");
+            statement.execute("VACUUM ANALYZE items");
+        }
+        System.out.printf("items: %d%n", items);
+    }
+
+    @AfterAll
+    void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        }
+        connection.close();
+    }
+
+    @Test
+    void compareLikeAndTrigramSearch() throws SQLException {
+        System.out.printf("%-12s %12s %12s%n", "text", "like, ms", "trgm, ms");
+        for (String text : List.of("drel", "bosch 2", "a1b2", "-99999", "nothing")) {
+            System.out.printf("%-12s %12.2f %12.2f%n", text, medianMillis(LIKE_QUERY, text, text),
+                    medianMillis(TRGM_QUERY, text, text, CANDIDATES, text, text, PAGE_SIZE, 0));
+        }
+        assertThat(new HashSet<>(trgmPage("-99999", 0, PAGE_SIZE)),
+                equalTo(new HashSet<>(ids(LIKE_QUERY, "-99999", "-99999"))));
+    }
+
+    /*
+     * Совпадений меньше блока - порядок точный, больше - страницы на границе блоков складываются без пропусков
+     * и повторов в первые блоки
+     */
+    @Test
+    void checkTrigramOrdering() throws SQLException {
+        assertThat(trgmPage("-99999", 0, PAGE_SIZE),
+                equalTo(ids(SIMILARITY_QUERY, "-99999", "-99999", "-99999", "-99999")));
+        List<Long> pages = new ArrayList<>();
+        for (int from = CANDIDATES - 2 * PAGE_SIZE; from < CANDIDATES + 2 * PAGE_SIZE; from += PAGE_SIZE) {
+            pages.addAll(trgmPage("drel", from, PAGE_SIZE));
+        }
+        List<Long> blocks = trgmPage("drel", 0, 2 * CANDIDATES);
+        assertThat(pages, equalTo(blocks.subList(CANDIDATES - 2 * PAGE_SIZE, CANDIDATES + 2 * PAGE_SIZE)));
+    }
+
+    /*
+     * Как ItemServiceImpl: первые по id совпадения целыми блоками до конца страницы
+     */
+    private List<Long> trgmPage(String text, int from, int size) throws SQLException {
+        int matches = (from + size + CANDIDATES - 1) / CANDIDATES * CANDIDATES;
+        return ids(TRGM_QUERY, text, text, matches, text, text, size, from);
+    }
+
+    private double medianMillis(String query, Object... parameters) throws SQLException {
+        for (int i = 0; i < WARMUP; i++) {
+            ids(query, parameters);
+        }
+        double[] timings = new double[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            ids(query, parameters);
+            timings[i] = (System.nanoTime() - start) / 1_000_000.0;
+        }
+        Arrays.sort(timings);
+        return timings[RUNS / 2];
+    }
+
+    private List<Long> ids(String query, Object... parameters) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            List<Long> ids = new ArrayList<>();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    ids.add(resultSet.getLong(1));
+                }
+            }
+            return ids;
+        }
+    }
+}
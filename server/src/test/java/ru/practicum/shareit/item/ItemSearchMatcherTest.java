@@ -0,0 +1,34 @@
+package ru.practicum.shareit.item;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.item.dto.ItemSearchDocumentDto;
+import ru.practicum.shareit.item.search.ItemSearchMatcher;
+import ru.practicum.shareit.item.search.ItemSearchMode;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ItemSearchMatcherTest {
+    private final ItemSearchMatcher matcher = new ItemSearchMatcher(
+            new ItemSearchDocumentDto(1L, "Дрель Bosch", "Ударная, для бетона", null));
+
+    @Test
+    void testSubstringModes() {
+        for (ItemSearchMode mode : new ItemSearchMode[]{ItemSearchMode.LIKE, ItemSearchMode.TRGM}) {
+            assertTrue(matcher.mayMatch(mode, "ДРЕЛЬ b"));
+            assertTrue(matcher.mayMatch(mode, "я, для"));
+            assertFalse(matcher.mayMatch(mode, "дрели"));
+            assertTrue(matcher.mayMatch(mode, "дрел_"));
+            assertTrue(matcher.mayMatch(mode, "%"));
+        }
+    }
+
+    @Test
+    void testFullTextMatchesByStemStart() {
+        assertTrue(matcher.mayMatch(ItemSearchMode.FTS, "дрели"));
+        assertTrue(matcher.mayMatch(ItemSearchMode.FTS, "и бетонный"));
+        assertTrue(matcher.mayMatch(ItemSearchMode.FTS, "BOSCHES"));
+        assertFalse(matcher.mayMatch(ItemSearchMode.FTS, "палатка"));
+        assertFalse(matcher.mayMatch(ItemSearchMode.FTS, "ель"));
+        assertFalse(matcher.mayMatch(ItemSearchMode.FTS, " , "));
+    }
+}
@@ -1,5 +1,6 @@
 package ru.practicum.shareit.item;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -9,10 +10,15 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
+import ru.practicum.shareit.booking.dto.BookingIntervalDto;
+import ru.practicum.shareit.booking.dto.BookingRequestDto;
+import ru.practicum.shareit.booking.dto.BookingShortResponseDto;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.Status;
 import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.service.BookingService;
 import ru.practicum.shareit.exception.BadRequestException;
 import ru.practicum.shareit.exception.ObjectNotFoundException;
 import ru.practicum.shareit.item.dto.*;
@@ -20,6 +26,9 @@ import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.CommentRepository;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.search.ItemSearchMode;
+import ru.practicum.shareit.item.search.ItemSearchProperties;
+import ru.practicum.shareit.item.search.ItemSearchSort;
 import ru.practicum.shareit.item.service.ItemService;
 import ru.practicum.shareit.item.service.ItemServiceImpl;
 import ru.practicum.shareit.user.dto.UserDto;
@@ -30,9 +39,11 @@ import ru.practicum.shareit.user.service.UserService;
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
@@ -54,9 +65,14 @@ public class ItemServiceImplTest {
     BookingRepository bookingRepository;
     @Mock
     CommentRepository commentRepository;
+    @Mock
+    ItemSearchProperties searchProperties;
     @InjectMocks
     ItemServiceImpl itemServiceImpl;
     private final ItemService itemService;
+    private final BookingService bookingService;
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
     private CommentRequestDto commentRequestDto;
     private UserDto userDto;
     private ItemRequestDto itemDto;
@@ -149,13 +165,162 @@ public class ItemServiceImplTest {
         assertThat(items.get(0).getDescription(), equalTo("Description"));
     }
 
+    @Test
+    void testGetAllItemsWithLastAndNextBookings() {
+        userService.createUserDto(userDto);
+        userService.createUserDto(UserDto.builder().name("Booker").email("booker@email.ru").build());
+        itemService.createItemDto(itemDto, 1L);
+        itemDto.setId(null);
+        itemService.createItemDto(itemDto, 1L);
+        LocalDateTime now = LocalDateTime.now();
+        insertBooking(1L, now.minusDays(12), now.minusDays(10), Status.APPROVED);
+        insertBooking(1L, now.minusDays(4), now.minusDays(2), Status.APPROVED);
+        insertBooking(1L, now.minusDays(2), now.minusDays(1), Status.REJECTED);
+        insertBooking(1L, now.plusDays(5), now.plusDays(6), Status.APPROVED);
+        insertBooking(1L, now.plusDays(2), now.plusDays(3), Status.APPROVED);
+        insertBooking(2L, now.minusDays(3), now.minusDays(1), Status.APPROVED);
+        List<ItemFullResponseDto> items = itemService.getAllUserItemsDto(1L, 0, 10);
+        assertThat(items.size(), equalTo(2));
+        assertThat(items.get(0).getLastBooking(), equalTo(new BookingShortResponseDto(2L, 2L)));
+        assertThat(items.get(0).getNextBooking(), equalTo(new BookingShortResponseDto(5L, 2L)));
+        assertThat(items.get(1).getLastBooking(), equalTo(new BookingShortResponseDto(6L, 2L)));
+        assertNull(items.get(1).getNextBooking());
+    }
+
     @Test
     void testSearchItem() {
         userService.createUserDto(userDto);
         itemService.createItemDto(itemDto, 1L);
-        List<ItemResponseDto> items = itemService.searchItemsDto("IteM", 1L, 0, 10);
+        List<ItemResponseDto> items = itemService.searchItemsDto("IteM", 1L, null, null, 0, 10);
+        assertThat(items.size(), equalTo(1));
+        assertThat(items.get(0).getDescription(), equalTo("Description"));
+    }
+
+    @Test
+    void testSearchItemInIndex() {
+        userService.createUserDto(userDto);
+        itemService.createItemDto(itemDto, 1L);
+        assertThat(itemService.searchItemsDto("TEM", 1L, ItemSearchMode.INDEX, null, 0, 10).size(), equalTo(1));
+        itemService.updateItemDto(1L, ItemRequestDto.builder().available(false).build(), 1L);
+        assertThat(itemService.searchItemsDto("TEM", 1L, ItemSearchMode.INDEX, null, 0, 10).size(), equalTo(0));
+        itemService.updateItemDto(1L, ItemRequestDto.builder().name("Дрель").available(true).build(), 1L);
+        assertThat(itemService.searchItemsDto("TEM", 1L, ItemSearchMode.INDEX, null, 0, 10).size(), equalTo(0));
+        List<ItemResponseDto> items = itemService.searchItemsDto("дрел", 1L, ItemSearchMode.INDEX, null, 0, 10);
         assertThat(items.size(), equalTo(1));
         assertThat(items.get(0).getDescription(), equalTo("Description"));
+        assertThat(itemService.rebuildSearchIndex().getItems(), equalTo(1));
+    }
+
+    @Test
+    void testSuggestItemNames() {
+        userService.createUserDto(userDto);
+        itemService.createItemDto(ItemRequestDto.builder().name("Дрель").description("Сетевая")
+                .available(true).build(), 1L);
+        itemService.createItemDto(ItemRequestDto.builder().name("Дрель").description("Ударная")
+                .available(true).build(), 1L);
+        itemService.createItemDto(ItemRequestDto.builder().name("Дрель Bosch").description("Аккумуляторная")
+                .available(true).build(), 1L);
+        assertThat(itemService.suggestItemNames("дР", 10), equalTo(List.of(new ItemSuggestionDto("Дрель", 2),
+                new ItemSuggestionDto("Дрель Bosch", 1))));
+        itemService.updateItemDto(1L, ItemRequestDto.builder().available(false).build(), 1L);
+        itemService.updateItemDto(2L, ItemRequestDto.builder().name("Дрель Makita").build(), 1L);
+        assertThat(itemService.suggestItemNames("дрель", 10), equalTo(List.of(
+                new ItemSuggestionDto("Дрель Bosch", 1), new ItemSuggestionDto("Дрель Makita", 1))));
+        assertThat(itemService.suggestItemNames("дрель", 1).size(), equalTo(1));
+        assertThat(itemService.suggestItemNames(" ", 10).isEmpty(), equalTo(true));
+    }
+
+    @Test
+    void testSearchCacheInvalidatedByMatchingChanges() {
+        userService.createUserDto(userDto);
+        itemService.createItemDto(ItemRequestDto.builder().name("Дрель").description("Сетевая")
+                .available(true).build(), 1L);
+        itemService.createItemDto(ItemRequestDto.builder().name("Палатка").description("Двухместная")
+                .available(true).build(), 1L);
+        assertThat(itemService.searchItemsDto("дрель", 1L, null, null, 0, 10).size(), equalTo(1));
+        assertThat(itemService.searchItemsDto("ПАЛАТКА", 1L, null, null, 0, 10).size(), equalTo(1));
+        assertThat(cacheGets("hit"), equalTo(0.0));
+        itemService.createItemDto(ItemRequestDto.builder().name("Ударная дрель").description("С чемоданом")
+                .available(true).build(), 1L);
+        assertThat(itemService.searchItemsDto("Палатка", 1L, null, null, 0, 10).size(), equalTo(1));
+        assertThat(cacheGets("hit"), equalTo(1.0));
+        assertThat(itemService.searchItemsDto("дрель", 1L, null, null, 0, 10).size(), equalTo(2));
+        itemService.updateItemDto(2L, ItemRequestDto.builder().description("Трёхместная").build(), 1L);
+        itemService.updateItemDto(1L, ItemRequestDto.builder().available(false).build(), 1L);
+        assertThat(itemService.searchItemsDto("дрель", 1L, null, null, 0, 10).size(), equalTo(1));
+        assertThat(itemService.searchItemsDto("палатка", 1L, null, null, 0, 10).get(0).getDescription(),
+                equalTo("Трёхместная"));
+        assertThat(cacheGets("hit"), equalTo(1.0));
+        assertThat(meterRegistry.get("shareit.item.search.cache.invalidated").counter().count(), equalTo(3.0));
+    }
+
+    @Test
+    void testSearchItemByRelevance() {
+        userService.createUserDto(userDto);
+        itemService.createItemDto(ItemRequestDto.builder().name("Палатка").description("Дрель в подарок")
+                .available(true).build(), 1L);
+        itemService.createItemDto(ItemRequestDto.builder().name("Ударная дрель").description("Дрель и сверла")
+                .available(true).build(), 1L);
+        itemService.createItemDto(ItemRequestDto.builder().name("Дрель").description("Сетевая")
+                .available(true).build(), 1L);
+        itemService.createItemDto(ItemRequestDto.builder().name("Дрель").description("Недоступна")
+                .available(false).build(), 1L);
+        for (ItemSearchMode mode : List.of(ItemSearchMode.LIKE, ItemSearchMode.INDEX)) {
+            List<ItemResponseDto> items = itemService.searchItemsDto("дрель", 1L, mode, ItemSearchSort.RELEVANCE,
+                    0, 10);
+            assertThat(items.stream().map(ItemResponseDto::getId).collect(Collectors.toList()),
+                    equalTo(List.of(3L, 2L, 1L)));
+            assertThat(itemService.searchItemsDto("дрель", 1L, mode, ItemSearchSort.RELEVANCE, 1, 1)
+                    .get(0).getId(), equalTo(2L));
+        }
+    }
+
+    @Test
+    void testSearchItemFullText() {
+        User user = new User(1L, "Name", "some@email.ru");
+        Item item = new Item(1L, "Дрель", "Аккумуляторная дрель", true, user, null);
+        Mockito.when(userRepository.existsById(1L)).thenReturn(true);
+        Mockito.when(searchProperties.getMode()).thenReturn(ItemSearchMode.FTS);
+        Mockito.when(itemRepository.getAvailableItemByTsQuery(Mockito.eq("дрели"), any()))
+                .thenReturn(List.of(item));
+        List<ItemResponseDto> items = itemServiceImpl.searchItemsDto("дрели", 1L, null, null, 0, 10);
+        assertThat(items.size(), equalTo(1));
+        assertThat(items.get(0).getName(), equalTo("Дрель"));
+        Mockito.verify(itemRepository, Mockito.never()).getAvailableItemByText(any(), any());
+    }
+
+    @Test
+    void testSearchItemTrigramModeFromRequest() {
+        User user = new User(1L, "Name", "some@email.ru");
+        Item item = new Item(1L, "Дрель Bosch 2000", "Дрель", true, user, null);
+        Mockito.when(userRepository.existsById(1L)).thenReturn(true);
+        Mockito.when(searchProperties.getMode()).thenReturn(ItemSearchMode.FTS);
+        Mockito.when(searchProperties.getTrgmCandidates()).thenReturn(1000);
+        Mockito.when(itemRepository.getAvailableItemBySimilarity(Mockito.eq("bosch 2"), Mockito.eq(1000),
+                        Mockito.eq(1000), any()))
+                .thenReturn(List.of(item));
+        List<ItemResponseDto> items = itemServiceImpl.searchItemsDto("bosch 2", 1L, ItemSearchMode.TRGM, null,
+                0, 10);
+        assertThat(items.size(), equalTo(1));
+        Mockito.verify(itemRepository, Mockito.never()).getAvailableItemByTsQuery(any(), any());
+    }
+
+    @Test
+    void testSearchItemTrigramModeTakesWholeCandidateBlocks() {
+        Mockito.when(userRepository.existsById(1L)).thenReturn(true);
+        Mockito.when(searchProperties.getTrgmCandidates()).thenReturn(1000);
+        itemServiceImpl.searchItemsDto("bosch 2", 1L, ItemSearchMode.TRGM, null, 995, 10);
+        Mockito.verify(itemRepository).getAvailableItemBySimilarity(Mockito.eq("bosch 2"), Mockito.eq(1000),
+                Mockito.eq(2000), any());
+    }
+
+    @Test
+    void testSearchItemTrigramModePageEndBeyondIntRange() {
+        Mockito.when(userRepository.existsById(1L)).thenReturn(true);
+        Mockito.when(searchProperties.getTrgmCandidates()).thenReturn(1000);
+        itemServiceImpl.searchItemsDto("bosch 2", 1L, ItemSearchMode.TRGM, null, 2147483600, 100);
+        Mockito.verify(itemRepository).getAvailableItemBySimilarity(Mockito.eq("bosch 2"), Mockito.eq(1000),
+                Mockito.eq(Integer.MAX_VALUE), any());
     }
 
     @Test
@@ -173,7 +338,7 @@ public class ItemServiceImplTest {
         User user2 = new User(2L, "NewName", "name@email.ru");
         Item item = new Item(1L, "Item", "Description", true, user, 1L);
         Booking booking = new Booking(1L, LocalDateTime.of(2022, 1, 12, 5, 15),
-                LocalDateTime.of(2022, 1, 22, 5, 15), item, user2, Status.APPROVED);
+                LocalDateTime.of(2022, 1, 22, 5, 15), item, user2, Status.APPROVED, user.getId(), 0L);
         Mockito.when(userRepository.findById(1L)).thenReturn(Optional.of(user));
         Mockito.when(itemRepository.findById(1L)).thenReturn(Optional.of(item));
         Mockito.when(bookingRepository.findBookersAndItems(Mockito.anyLong(), Mockito.anyLong()))
@@ -189,4 +354,52 @@ public class ItemServiceImplTest {
         Mockito.verify(bookingRepository).findBookersAndItems(Mockito.anyLong(), Mockito.anyLong());
         Mockito.verify(commentRepository).save(any(Comment.class));
     }
+
+    @Test
+    void testGetItemAvailability() {
+        userService.createUserDto(userDto);
+        userService.createUserDto(UserDto.builder().name("Booker").email("booker@email.ru").build());
+        itemService.createItemDto(itemDto, 1L);
+        LocalDateTime base = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.HOURS);
+        bookingService.createBooking(new BookingRequestDto(1L, base.plusDays(1), base.plusDays(3)), 2L);
+        bookingService.createBooking(new BookingRequestDto(1L, base.plusDays(3), base.plusDays(5)), 2L);
+        bookingService.createBooking(new BookingRequestDto(1L, base.plusDays(6), base.plusDays(7)), 2L);
+        bookingService.updateBooking(1L, 3L, false);
+        ItemAvailabilityDto availability = itemService.getItemAvailability(1L, 2L, base, base.plusDays(9));
+        assertThat(availability.getAvailable(), equalTo(true));
+        assertThat(availability.getFreeSlots(), equalTo(List.of(
+                new TimeSlotDto(base, base.plusDays(1)),
+                new TimeSlotDto(base.plusDays(5), base.plusDays(9)))));
+        BadRequestException exception = assertThrows(BadRequestException.class, () ->
+                itemService.getItemAvailability(1L, 2L, base, base));
+        assertThat(exception.getMessage(), equalTo("Начало периода должно быть раньше его конца"));
+    }
+
+    @Test
+    void testGetItemAvailabilityMergesOverlappingIntervals() {
+        User user = new User(1L, "Name", "some@email.ru");
+        Item item = new Item(1L, "Item", "Description", true, user, null);
+        LocalDateTime base = LocalDateTime.of(2030, 1, 1, 0, 0);
+        Mockito.when(userRepository.existsById(2L)).thenReturn(true);
+        Mockito.when(itemRepository.findById(1L)).thenReturn(Optional.of(item));
+        Mockito.when(bookingRepository.findItemIntervals(Mockito.eq(1L), Mockito.anyCollection(),
+                Mockito.eq(base), Mockito.eq(base.plusDays(10)))).thenReturn(List.of(
+                new BookingIntervalDto(1L, 1L, base.plusDays(1), base.plusDays(5)),
+                new BookingIntervalDto(2L, 1L, base.plusDays(2), base.plusDays(3)),
+                new BookingIntervalDto(3L, 1L, base.plusDays(4), base.plusDays(7))));
+        ItemAvailabilityDto availability = itemServiceImpl.getItemAvailability(1L, 2L, base, base.plusDays(10));
+        assertThat(availability.getFreeSlots(), equalTo(List.of(
+                new TimeSlotDto(base, base.plusDays(1)),
+                new TimeSlotDto(base.plusDays(7), base.plusDays(10)))));
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.get("cache.gets").tags("cache", "itemSearch", "result", result).functionCounter()
+                .count();
+    }
+
+    private void insertBooking(Long itemId, LocalDateTime start, LocalDateTime end, Status status) {
+        jdbcTemplate.update("INSERT INTO bookings (start_date, end_date, item_id, booker_id, status, owner_id) " +
+                "VALUES (?, ?, ?, 2, ?, 1)", start, end, itemId, status.getCode());
+    }
 }
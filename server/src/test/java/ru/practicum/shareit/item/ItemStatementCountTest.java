@@ -0,0 +1,88 @@
+package ru.practicum.shareit.item;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.practicum.shareit.booking.dto.BookingShortResponseDto;
+import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.item.dto.CommentRequestDto;
+import ru.practicum.shareit.item.dto.ItemFullResponseDto;
+import ru.practicum.shareit.item.dto.ItemRequestDto;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.service.UserService;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class ItemStatementCountTest {
+    private static final int COMMENTS = 3;
+    private final EntityManagerFactory entityManagerFactory;
+    private final JdbcTemplate jdbcTemplate;
+    private final UserService userService;
+    private final ItemService itemService;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        userService.createUserDto(UserDto.builder().name("Owner").email("owner@email.ru").build());
+        itemService.createItemDto(ItemRequestDto.builder()
+                .name("Item")
+                .description("Description")
+                .available(true)
+                .build(), 1L);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < COMMENTS; i++) {
+            UserDto booker = userService.createUserDto(UserDto.builder()
+                    .name("Booker" + i)
+                    .email("booker" + i + "@email.ru")
+                    .build());
+            insertBooking(booker.getId(), now.minusDays(10 - i), now.minusDays(9 - i));
+            itemService.createComment(booker.getId(), 1L, CommentRequestDto.builder().text("Text" + i).build());
+        }
+        insertBooking(2L, now.plusDays(1), now.plusDays(2));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @Test
+    void testOwnerItemViewLoadsInTwoSelects() {
+        ItemFullResponseDto item = itemService.getItemDtoById(1L, 1L);
+        assertThat(item.getLastBooking(), equalTo(new BookingShortResponseDto(3L, 4L)));
+        assertThat(item.getNextBooking(), equalTo(new BookingShortResponseDto(4L, 2L)));
+        assertThat(item.getComments().size(), equalTo(COMMENTS));
+        assertThat(item.getComments().get(0).getAuthorName(), equalTo("Booker0"));
+        // item с bookings одним select + comments вместе с авторами
+        assertThat(statistics.getPrepareStatementCount(), equalTo(2L));
+    }
+
+    @Test
+    void testNotOwnerItemViewHasNoBookings() {
+        ItemFullResponseDto item = itemService.getItemDtoById(1L, 2L);
+        assertNull(item.getLastBooking());
+        assertNull(item.getNextBooking());
+        assertThat(item.getComments().size(), equalTo(COMMENTS));
+        assertThat(statistics.getPrepareStatementCount(), equalTo(3L));
+    }
+
+    private void insertBooking(Long bookerId, LocalDateTime start, LocalDateTime end) {
+        jdbcTemplate.update("INSERT INTO bookings (start_date, end_date, item_id, booker_id, status, owner_id) " +
+                "VALUES (?, ?, 1, ?, ?, 1)", start, end, bookerId, Status.APPROVED.getCode());
+    }
+}
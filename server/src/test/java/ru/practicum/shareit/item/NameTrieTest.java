@@ -0,0 +1,103 @@
+package ru.practicum.shareit.item;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.item.dto.ItemSuggestionDto;
+import ru.practicum.shareit.item.search.NameTrie;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NameTrieTest {
+    private NameTrie trie;
+
+    @BeforeEach
+    void setUp() {
+        trie = new NameTrie(3);
+        trie.add("Дрель Bosch");
+        trie.add("Дрель");
+        trie.add("дрель");
+        trie.add("Дрель Makita");
+        trie.add("Дрель Makita");
+        trie.add("Дрель Makita");
+        trie.add("Палатка");
+    }
+
+    @Test
+    void testSuggestByPopularityIgnoringCase() {
+        assertEquals(List.of(new ItemSuggestionDto("Дрель Makita", 3), new ItemSuggestionDto("Дрель", 2),
+                new ItemSuggestionDto("Дрель Bosch", 1)), trie.suggest("ДР", 10));
+        assertEquals(List.of(new ItemSuggestionDto("Дрель Makita", 3)), trie.suggest("дрель m", 10));
+        assertEquals(List.of("Дрель Makita", "Дрель"), names(trie.suggest("дрель", 2)));
+        assertEquals(List.of("Дрель Makita", "Дрель Bosch"), names(trie.suggest("  дрель ", 10)));
+        assertEquals(List.of(), trie.suggest("пила", 10));
+        assertEquals(List.of(), trie.suggest("дрель bosch 2", 10));
+    }
+
+    @Test
+    void testSuggestKeepsCapacityBest() {
+        trie.add("Палатка");
+        trie.add("Палатка");
+        trie.add("Палатка");
+        assertEquals(List.of("Палатка", "Дрель Makita", "Дрель"), names(trie.suggest("", 10)));
+        assertEquals(List.of("Палатка", "Дрель Makita", "Дрель"), names(trie.suggest(" ", 10)));
+    }
+
+    @Test
+    void testRemoveMergesNodes() {
+        int nodes = trie.nodeCount();
+        trie.add("Дрель ударная");
+        assertTrue(trie.remove("ДРЕЛЬ УДАРНАЯ"));
+        assertEquals(nodes, trie.nodeCount());
+        assertFalse(trie.remove("Дрель ударная"));
+        assertFalse(trie.remove("Дре"));
+        assertTrue(trie.remove("Дрель"));
+        assertTrue(trie.remove("Дрель"));
+        assertEquals(List.of("Дрель Makita", "Дрель Bosch"), names(trie.suggest("дрель", 10)));
+        assertEquals(3, trie.size());
+    }
+
+    @Test
+    void testMatchesFullScanAfterRandomChanges() {
+        Random random = new Random(42);
+        NameTrie checked = new NameTrie(5);
+        Map<String, Integer> counts = new HashMap<>();
+        String[] words = {"а", "аб", "абв", "б", "ба", "бв", " ", "в"};
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder name = new StringBuilder();
+            for (int j = random.nextInt(4); j >= 0; j--) {
+                name.append(words[random.nextInt(words.length)]);
+            }
+            String key = NameTrie.normalize(name.toString());
+            if (key.isEmpty()) {
+                continue;
+            }
+            if (random.nextInt(3) == 0) {
+                assertEquals(counts.containsKey(key), checked.remove(key));
+                counts.computeIfPresent(key, (k, count) -> count == 1 ? null : count - 1);
+            } else {
+                checked.add(key);
+                counts.merge(key, 1, Integer::sum);
+            }
+            String prefix = key.substring(0, random.nextInt(key.length()) + 1);
+            assertEquals(expected(counts, prefix), checked.suggest(prefix, 5));
+        }
+        assertEquals(counts.size(), checked.size());
+    }
+
+    private static List<ItemSuggestionDto> expected(Map<String, Integer> counts, String prefix) {
+        return counts.entrySet().stream()
+                .filter(entry -> entry.getKey().startsWith(prefix))
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(5)
+                .map(entry -> new ItemSuggestionDto(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    private static List<String> names(List<ItemSuggestionDto> suggestions) {
+        return suggestions.stream().map(ItemSuggestionDto::getName).collect(Collectors.toList());
+    }
+}
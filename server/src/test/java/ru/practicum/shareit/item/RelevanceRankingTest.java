@@ -0,0 +1,53 @@
+package ru.practicum.shareit.item;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.item.dto.ItemSearchDocumentDto;
+import ru.practicum.shareit.item.search.RelevanceRanking;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class RelevanceRankingTest {
+    @Test
+    void testScoreWeightsNameOverDescription() {
+        ItemSearchDocumentDto nameMatch = new ItemSearchDocumentDto(1L, "Дрель ударная", "", null);
+        ItemSearchDocumentDto descriptionMatch = new ItemSearchDocumentDto(2L, "Шуруповерт", "дрель, дрель", null);
+        ItemSearchDocumentDto prefixMatch = new ItemSearchDocumentDto(3L, "Ударная дрель", "", null);
+        String[] terms = {"ударная", "дрель"};
+        assertEquals(11, RelevanceRanking.score(prefixMatch, "ударная дрель", terms));
+        assertEquals(6, RelevanceRanking.score(nameMatch, "ударная дрель", terms));
+        assertEquals(2, RelevanceRanking.score(descriptionMatch, "ударная дрель", terms));
+    }
+
+    @Test
+    void testTopKPageEndBeyondIntRange() {
+        RelevanceRanking.TopK topK = RelevanceRanking.topK("палатка", Integer.MAX_VALUE - 47, 100);
+        topK.offer(new ItemSearchDocumentDto(1L, "Палатка", "Палатка", null));
+        assertEquals(List.of(), topK.page());
+    }
+
+    @Test
+    void testTopKMatchesFullSort() {
+        List<ItemSearchDocumentDto> documents = new ArrayList<>();
+        for (long id = 1; id <= 500; id++) {
+            String name = id % 7 == 0 ? "Палатка" : "Тент";
+            documents.add(new ItemSearchDocumentDto(id, name, "палатка ".repeat((int) (id % 5)), null));
+        }
+        RelevanceRanking.TopK topK = RelevanceRanking.topK("ПАЛАТКА", 20, 10);
+        documents.forEach(topK::offer);
+        String[] terms = {"палатка"};
+        List<Long> expected = documents.stream()
+                .sorted(Comparator.comparingInt((ItemSearchDocumentDto document) ->
+                        -RelevanceRanking.score(document, "палатка", terms))
+                        .thenComparing(ItemSearchDocumentDto::getId))
+                .skip(20)
+                .limit(10)
+                .map(ItemSearchDocumentDto::getId)
+                .collect(Collectors.toList());
+        assertEquals(expected, topK.page().stream().map(ItemSearchDocumentDto::getId).collect(Collectors.toList()));
+    }
+}
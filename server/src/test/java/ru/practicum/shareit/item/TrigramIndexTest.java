@@ -0,0 +1,76 @@
+package ru.practicum.shareit.item;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.item.dto.ItemSearchDocumentDto;
+import ru.practicum.shareit.item.search.TrigramIndex;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrigramIndexTest {
+    private TrigramIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new TrigramIndex();
+        index.add(new ItemSearchDocumentDto(1L, "Дрель Bosch", "Ударная дрель", null));
+        index.add(new ItemSearchDocumentDto(2L, "Палатка", "Четырёхместная палатка", 7L));
+        index.add(new ItemSearchDocumentDto(3L, "Шуруповерт", "Аккумуляторный, bosch 2000", null));
+    }
+
+    @Test
+    void testSearchSubstringIgnoringCase() {
+        assertEquals(List.of(1L, 3L), ids(index.search("BOSCH", 0, 10)));
+        assertEquals(List.of(1L), ids(index.search("рель", 0, 10)));
+        assertEquals(List.of(3L), ids(index.search("bosch 2", 0, 10)));
+        assertEquals(List.of(), ids(index.search("пила", 0, 10)));
+    }
+
+    @Test
+    void testSearchShortText() {
+        assertEquals(List.of(2L), ids(index.search("па", 0, 10)));
+        assertEquals(List.of(), ids(index.search("", 0, 10)));
+    }
+
+    @Test
+    void testSearchSkipsCandidatesWithoutSubstring() {
+        index.add(new ItemSearchDocumentDto(4L, "abcxbcd", "", null));
+        assertEquals(List.of(), ids(index.search("abcd", 0, 10)));
+    }
+
+    @Test
+    void testSearchPage() {
+        for (long id = 10; id < 40; id++) {
+            index.add(new ItemSearchDocumentDto(id, "Велосипед " + id, "", null));
+        }
+        assertEquals(List.of(15L, 16L, 17L), ids(index.search("велосипед", 5, 3)));
+        assertEquals(30, index.search("велосипед", 0, 100).size());
+    }
+
+    @Test
+    void testReplaceAndRemove() {
+        index.add(new ItemSearchDocumentDto(1L, "Перфоратор", "Makita", null));
+        assertEquals(List.of(3L), ids(index.search("bosch", 0, 10)));
+        assertEquals(List.of(1L), ids(index.search("перфоратор", 0, 10)));
+        assertTrue(index.remove(1L));
+        assertFalse(index.remove(1L));
+        assertEquals(List.of(), ids(index.search("перфоратор", 0, 10)));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void testCompactKeepsResults() {
+        long before = index.estimatedBytes();
+        index.compact();
+        assertTrue(index.estimatedBytes() <= before);
+        assertEquals(List.of(1L, 3L), ids(index.search("bosch", 0, 10)));
+        assertEquals(index.gramCount() > 0, index.postingCount() >= index.gramCount());
+    }
+
+    private List<Long> ids(List<ItemSearchDocumentDto> documents) {
+        return documents.stream().map(ItemSearchDocumentDto::getId).collect(Collectors.toList());
+    }
+}
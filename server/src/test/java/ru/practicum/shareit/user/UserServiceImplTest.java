@@ -8,6 +8,10 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.DirtiesContext;
 import ru.practicum.shareit.exception.DuplicateEmailException;
 import ru.practicum.shareit.exception.ObjectNotFoundException;
+import ru.practicum.shareit.item.dto.ItemRequestDto;
+import ru.practicum.shareit.item.dto.ItemSuggestionDto;
+import ru.practicum.shareit.item.search.ItemSearchMode;
+import ru.practicum.shareit.item.service.ItemService;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.service.UserService;
@@ -27,6 +31,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 public class UserServiceImplTest {
     private final EntityManager em;
     private final UserService userService;
+    private final ItemService itemService;
 
     @Test
     void testCreateUser() {
@@ -110,6 +115,45 @@ public class UserServiceImplTest {
         assertThat(1, equalTo(userService.getAllUsersDto().size()));
     }
 
+    @Test
+    void testDeleteUserRemovesItemsFromSearchIndex() {
+        userService.createUserDto(new UserDto(1L, "Petr", "petr@email.ru"));
+        userService.createUserDto(new UserDto(2L, "Alex", "alex@email.ru"));
+        itemService.createItemDto(ItemRequestDto.builder().name("Дрель").description("Ударная").available(true)
+                .build(), 1L);
+        assertThat(itemService.searchItemsDto("дрель", 2L, ItemSearchMode.INDEX, null, 0, 10).size(),
+                equalTo(1));
+        userService.deleteUserDtoById(1L);
+        assertThat(itemService.searchItemsDto("дрель", 2L, ItemSearchMode.INDEX, null, 0, 10).size(),
+                equalTo(0));
+    }
+
+    @Test
+    void testDeleteUserRemovesItemNamesFromSuggestions() {
+        userService.createUserDto(new UserDto(1L, "Petr", "petr@email.ru"));
+        userService.createUserDto(new UserDto(2L, "Alex", "alex@email.ru"));
+        itemService.createItemDto(ItemRequestDto.builder().name("Дрель").description("Ударная").available(true)
+                .build(), 1L);
+        itemService.createItemDto(ItemRequestDto.builder().name("Дрель").description("Аккумуляторная")
+                .available(true).build(), 2L);
+        assertThat(itemService.suggestItemNames("др", 10), equalTo(List.of(new ItemSuggestionDto("Дрель", 2))));
+        userService.deleteUserDtoById(1L);
+        assertThat(itemService.suggestItemNames("др", 10), equalTo(List.of(new ItemSuggestionDto("Дрель", 1))));
+    }
+
+    @Test
+    void testDeleteUserInvalidatesCachedSearch() {
+        userService.createUserDto(new UserDto(1L, "Petr", "petr@email.ru"));
+        userService.createUserDto(new UserDto(2L, "Alex", "alex@email.ru"));
+        itemService.createItemDto(ItemRequestDto.builder().name("Дрель").description("Ударная").available(true)
+                .build(), 1L);
+        assertThat(itemService.searchItemsDto("дрель", 2L, ItemSearchMode.LIKE, null, 0, 10).size(),
+                equalTo(1));
+        userService.deleteUserDtoById(1L);
+        assertThat(itemService.searchItemsDto("дрель", 2L, ItemSearchMode.LIKE, null, 0, 10).size(),
+                equalTo(0));
+    }
+
     @Test
     void testDeleteUserByIdError() {
         ObjectNotFoundException exception = assertThrows(ObjectNotFoundException.class, () ->